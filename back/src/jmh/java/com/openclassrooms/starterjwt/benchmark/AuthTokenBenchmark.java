@@ -0,0 +1,151 @@
+package com.openclassrooms.starterjwt.benchmark;
+
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.jwt.AuthTokenFilter;
+import com.openclassrooms.starterjwt.security.jwt.JwtClaims;
+import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.security.jwt.VerifiedTokenCache;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
+import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Coût de l'émission et de la vérification des tokens, et de l'authentification d'une requête par le filtre
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AuthTokenBenchmark {
+
+    private JwtUtils jwtUtils;
+    private VerifiedTokenCache verifiedTokenCache;
+    private AuthTokenFilter authTokenFilter;
+    private AuthTokenFilter statelessAuthTokenFilter;
+    private AnnotationConfigApplicationContext context;
+    private UsernamePasswordAuthenticationToken authentication;
+    private String token;
+
+    @Setup
+    public void setup() {
+        jwtUtils = new JwtUtils();
+        ReflectionTestUtils.setField(jwtUtils, "jwtSecret", "openclassrooms");
+        ReflectionTestUtils.setField(jwtUtils, "jwtExpirationMs", 86400000);
+
+        UserDetailsImpl principal = UserDetailsImpl.builder()
+                .id(1L)
+                .username("yoga@studio.com")
+                .firstName("Admin")
+                .lastName("Admin")
+                .admin(true)
+                .build();
+        authentication = new UsernamePasswordAuthenticationToken(principal, null);
+        token = jwtUtils.generateJwtToken(authentication);
+
+        verifiedTokenCache = new VerifiedTokenCache(jwtUtils, 10000);
+        verifiedTokenCache.parseJwtToken(token);
+
+        statelessAuthTokenFilter = new AuthTokenFilter();
+        ReflectionTestUtils.setField(statelessAuthTokenFilter, "verifiedTokenCache", verifiedTokenCache);
+        ReflectionTestUtils.setField(statelessAuthTokenFilter, "statelessPrincipal", true);
+
+        // Service réel derrière le proxy de cache Caffeine : après le premier appel, le principal vient du cache
+        UserRepository userRepository = mock(UserRepository.class);
+        when(userRepository.findByEmail(principal.getUsername())).thenReturn(Optional.of(
+                new User(principal.getUsername(), "Admin", "Admin", "password", true).setId(1L)));
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(UserRepository.class, () -> userRepository);
+        context.registerBean(CacheManager.class, () -> new CaffeineCacheManager(UserDetailsServiceImpl.PRINCIPAL_CACHE));
+        context.register(PrincipalCacheConfig.class, UserDetailsServiceImpl.class);
+        context.refresh();
+        UserDetailsServiceImpl userDetailsService = context.getBean(UserDetailsServiceImpl.class);
+        userDetailsService.loadPrincipal(principal.getUsername());
+
+        authTokenFilter = new AuthTokenFilter();
+        ReflectionTestUtils.setField(authTokenFilter, "verifiedTokenCache", verifiedTokenCache);
+        ReflectionTestUtils.setField(authTokenFilter, "userDetailsService", userDetailsService);
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    // Émission d'un token à la connexion
+    @Benchmark
+    public String generateJwtToken() {
+        return jwtUtils.generateJwtToken(authentication);
+    }
+
+    @Benchmark
+    public boolean validateJwtToken() {
+        return jwtUtils.validateJwtToken(token);
+    }
+
+    // Chemin d'origine : validation puis second décodage pour lire le sujet
+    @Benchmark
+    public String validateThenReadSubject() {
+        return jwtUtils.validateJwtToken(token) ? jwtUtils.getUserNameFromJwtToken(token) : null;
+    }
+
+    // Une seule vérification HMAC et un seul décodage JSON
+    @Benchmark
+    public JwtClaims parseOnce() {
+        return jwtUtils.parseJwtToken(token);
+    }
+
+    // Token déjà vérifié : un SHA-256 et une lecture dans le cache
+    @Benchmark
+    public JwtClaims verifiedTokenCacheHit() {
+        return verifiedTokenCache.parseJwtToken(token);
+    }
+
+    // Tout le filtre d'une requête authentifiée avec le réglage par défaut : principal lu dans le cache des principaux
+    @Benchmark
+    public Authentication authTokenFilter() throws ServletException, IOException {
+        return authenticate(authTokenFilter);
+    }
+
+    // Même filtre avec oc.app.jwtStatelessPrincipal=true : principal construit depuis le token
+    @Benchmark
+    public Authentication authTokenFilterStatelessPrincipal() throws ServletException, IOException {
+        return authenticate(statelessAuthTokenFilter);
+    }
+
+    private Authentication authenticate(AuthTokenFilter filter) throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/session");
+        request.addHeader("Authorization", "Bearer " + token);
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    @Configuration
+    @EnableCaching(proxyTargetClass = true)
+    static class PrincipalCacheConfig {
+    }
+}
@@ -0,0 +1,55 @@
+package com.openclassrooms.starterjwt.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+// Coût de la sérialisation JSON des sessions renvoyées par /api/session, avec la configuration Jackson de Spring Boot
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionJsonBenchmark {
+    private static final int PARTICIPANTS = 20;
+
+    @Param({"1", "20", "200"})
+    private int size;
+
+    private ObjectMapper objectMapper;
+    private List<SessionDto> sessions;
+    private String json;
+
+    @Setup
+    public void setup() throws JsonProcessingException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        List<Long> users = LongStream.rangeClosed(1, PARTICIPANTS).boxed().collect(Collectors.toList());
+        sessions = new ArrayList<>();
+        for (long id = 1; id <= size; id++) {
+            sessions.add(new SessionDto(id, "Session " + id, new Date(), 1L, "Yoga", 20, users, LocalDateTime.now(), LocalDateTime.now()));
+        }
+        json = objectMapper.writeValueAsString(sessions);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(sessions);
+    }
+
+    @Benchmark
+    public SessionDto[] deserialize() throws JsonProcessingException {
+        return objectMapper.readValue(json, SessionDto[].class);
+    }
+}
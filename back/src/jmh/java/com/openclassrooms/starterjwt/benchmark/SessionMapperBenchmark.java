@@ -0,0 +1,104 @@
+package com.openclassrooms.starterjwt.benchmark;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.mapper.SessionMapperImpl;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionView;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.services.SessionService;
+import com.openclassrooms.starterjwt.services.TeacherService;
+import com.openclassrooms.starterjwt.services.UserService;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Coût du mapping des sessions dans les deux sens, selon la taille de la liste et le nombre de participants
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionMapperBenchmark {
+    private static final int PARTICIPANTS = 20;
+
+    @Param({"1", "20", "200"})
+    private int size;
+
+    private SessionMapperImpl sessionMapper;
+    private List<SessionView> views;
+    private List<SessionDto> dtos;
+
+    @Setup
+    public void setup() {
+        Teacher teacher = new Teacher().setId(1L).setFirstName("Margot").setLastName("Delahaye");
+        TeacherRepository teacherRepository = mock(TeacherRepository.class);
+        when(teacherRepository.findAll()).thenReturn(Collections.singletonList(teacher));
+        TeacherService teacherService = new TeacherService(teacherRepository);
+        teacherService.load();
+
+        List<User> users = new ArrayList<>();
+        List<Long> userIds = new ArrayList<>();
+        for (long i = 1; i <= PARTICIPANTS; i++) {
+            users.add(new User().setId(i));
+            userIds.add(i);
+        }
+        UserService userService = mock(UserService.class);
+        when(userService.findReferencesById(anyCollection())).thenReturn(users);
+
+        SpelAwareProxyProjectionFactory projectionFactory = new SpelAwareProxyProjectionFactory();
+        Map<Long, List<Long>> participants = new HashMap<>();
+        views = new ArrayList<>();
+        dtos = new ArrayList<>();
+        for (long id = 1; id <= size; id++) {
+            Map<String, Object> columns = new HashMap<>();
+            columns.put("id", id);
+            columns.put("name", "Session " + id);
+            columns.put("date", new Date());
+            columns.put("description", "Yoga");
+            columns.put("teacherId", teacher.getId());
+            columns.put("createdAt", LocalDateTime.now());
+            columns.put("updatedAt", LocalDateTime.now());
+            views.add(projectionFactory.createProjection(SessionView.class, columns));
+            participants.put(id, userIds);
+            dtos.add(new SessionDto(id, "Session " + id, new Date(), teacher.getId(), "Yoga",
+                    null, userIds, LocalDateTime.now(), LocalDateTime.now()));
+        }
+
+        // Les participants de toutes les sessions arrivent d'une seule requête PARTICIPATE
+        SessionService sessionService = mock(SessionService.class);
+        when(sessionService.findParticipantIds(anyCollection())).thenReturn(participants);
+
+        sessionMapper = new SessionMapperImpl();
+        ReflectionTestUtils.setField(sessionMapper, "teacherService", teacherService);
+        ReflectionTestUtils.setField(sessionMapper, "userService", userService);
+        ReflectionTestUtils.setField(sessionMapper, "sessionService", sessionService);
+    }
+
+    // Chemin de lecture de l'API : projections SessionView converties avec leurs participants
+    @Benchmark
+    public List<SessionDto> fromViews() {
+        return sessionMapper.fromViews(views);
+    }
+
+    // Professeur lu dans l'annuaire en mémoire, participants résolus par un seul appel au service
+    @Benchmark
+    public List<Session> toEntity() {
+        return sessionMapper.toEntity(dtos);
+    }
+}
@@ -0,0 +1,135 @@
+package com.openclassrooms.starterjwt.benchmark;
+
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Vue calendrier d'un mois sur une table de sessions volumineuse, avec et sans les index (date, teacher_id) et (teacher_id, date).
+// Base H2 en mode MySQL créée par les migrations Flyway de l'application, une session toutes les 5 minutes réparties entre 10 professeurs
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class SessionRangeQueryBenchmark {
+    private static final int TEACHERS = 10;
+    private static final int LOAD_CHUNK = 10_000;
+    private static final LocalDateTime FIRST_SESSION = LocalDateTime.of(2020, 1, 1, 0, 0);
+    private static final LocalDateTime FIRST_MONTH = LocalDateTime.of(2022, 1, 1, 0, 0);
+    // H2 réutilise le dernier résultat d'une requête relancée avec les mêmes paramètres : chaque appel lit un autre mois
+    private static final int MONTHS = 24;
+
+    // Même forme que les requêtes générées pour SessionRepository.findViewsBetween et findViewsBetweenForTeacher
+    private static final String SELECT = "SELECT s.id, s.name, s.date, s.description, s.capacity, t.id, s.created_at, s.updated_at "
+            + "FROM SESSIONS s LEFT JOIN TEACHERS t ON t.id = s.teacher_id WHERE s.date >= ? AND s.date < ? ";
+    private static final String RANGE = SELECT + "ORDER BY s.date, s.teacher_id, s.id";
+    private static final String RANGE_FOR_TEACHER = SELECT + "AND s.teacher_id = ? ORDER BY s.date, s.id";
+
+    @Param({"1000000"})
+    private int rows;
+
+    @Param({"true", "false"})
+    private boolean indexed;
+
+    private Connection connection;
+    private PreparedStatement range;
+    private PreparedStatement rangeForTeacher;
+    private Timestamp[] monthBounds;
+    private int month;
+
+    @Setup
+    public void setup() throws SQLException {
+        String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        Flyway.configure().dataSource(url, "sa", "").load().migrate();
+        connection = DriverManager.getConnection(url, "sa", "");
+
+        try (Statement statement = connection.createStatement()) {
+            statement.executeUpdate("INSERT INTO TEACHERS (first_name, last_name) SELECT 'Teacher', CONCAT('T', X) FROM SYSTEM_RANGE(3, " + TEACHERS + ")");
+            // Par lots : la séquence AUTO_INCREMENT valide la transaction toutes les 32 lignes, ce qui devient très lent
+            // quand une seule instruction insère toute la table
+            for (int first = 1; first <= rows; first += LOAD_CHUNK) {
+                statement.executeUpdate("INSERT INTO SESSIONS (name, description, date, teacher_id) "
+                        + "SELECT CONCAT('Session ', X), 'Yoga', DATEADD('MINUTE', X * 5, TIMESTAMP '" + Timestamp.valueOf(FIRST_SESSION) + "'), "
+                        + "MOD(X, " + TEACHERS + ") + 1 FROM SYSTEM_RANGE(" + first + ", " + Math.min(first + LOAD_CHUNK - 1, rows) + ")");
+            }
+            if (!indexed) {
+                statement.executeUpdate("DROP INDEX `idx_sessions_date_teacher`");
+                statement.executeUpdate("DROP INDEX `idx_sessions_teacher_date`");
+            }
+            statement.executeUpdate("ANALYZE");
+
+            // Le plan indique l'index utilisé et, s'il fournit déjà l'ordre demandé, "index sorted"
+            printPlan(statement, RANGE);
+            printPlan(statement, RANGE_FOR_TEACHER);
+        }
+
+        monthBounds = new Timestamp[MONTHS + 1];
+        for (int i = 0; i <= MONTHS; i++) {
+            monthBounds[i] = Timestamp.valueOf(FIRST_MONTH.plusMonths(i));
+        }
+        range = connection.prepareStatement(RANGE);
+        rangeForTeacher = connection.prepareStatement(RANGE_FOR_TEACHER);
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SHUTDOWN");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public void month(Blackhole blackhole) throws SQLException {
+        int current = nextMonth();
+        range.setTimestamp(1, monthBounds[current]);
+        range.setTimestamp(2, monthBounds[current + 1]);
+        consume(range, blackhole);
+    }
+
+    @Benchmark
+    public void monthForTeacher(Blackhole blackhole) throws SQLException {
+        int current = nextMonth();
+        rangeForTeacher.setTimestamp(1, monthBounds[current]);
+        rangeForTeacher.setTimestamp(2, monthBounds[current + 1]);
+        rangeForTeacher.setLong(3, 1L);
+        consume(rangeForTeacher, blackhole);
+    }
+
+    private int nextMonth() {
+        month = (month + 1) % MONTHS;
+        return month;
+    }
+
+    private static void consume(PreparedStatement query, Blackhole blackhole) throws SQLException {
+        try (ResultSet resultSet = query.executeQuery()) {
+            while (resultSet.next()) {
+                blackhole.consume(resultSet.getLong(1));
+                blackhole.consume(resultSet.getString(2));
+                blackhole.consume(resultSet.getTimestamp(3));
+            }
+        }
+    }
+
+    private void printPlan(Statement statement, String query) throws SQLException {
+        String explain = "EXPLAIN " + query.replaceFirst("\\?", "TIMESTAMP '" + Timestamp.valueOf(FIRST_MONTH) + "'")
+                .replaceFirst("\\?", "TIMESTAMP '" + Timestamp.valueOf(FIRST_MONTH.plusMonths(1)) + "'")
+                .replaceFirst("\\?", "1");
+        try (ResultSet plan = statement.executeQuery(explain)) {
+            plan.next();
+            System.out.println("indexed=" + indexed + " " + plan.getString(1).replaceAll("\\s+", " "));
+        }
+    }
+}
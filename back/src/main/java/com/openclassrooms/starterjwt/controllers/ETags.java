@@ -0,0 +1,41 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.repository.CollectionVersion;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+// Strong validators built from what the database already tracks, so a 304 can be decided before any mapping
+final class ETags {
+    // The browser keeps the body but must revalidate it on every request
+    static final CacheControl REVALIDATE = CacheControl.noCache();
+
+    private ETags() {
+    }
+
+    static String of(Long id, LocalDateTime updatedAt) {
+        return "\"" + id + "-" + micros(updatedAt) + "\"";
+    }
+
+    // Collections are validated by this ETag only: a delete lowers the count but leaves max(updated_at) unchanged,
+    // so a Last-Modified date would answer If-Modified-Since with a stale 304
+    static String of(CollectionVersion version) {
+        return "\"" + version.getTotal() + "-" + micros(version.getLastModified()) + "\"";
+    }
+
+    static long lastModified(LocalDateTime updatedAt) {
+        return updatedAt != null ? updatedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1;
+    }
+
+    static <T> ResponseEntity<T> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(REVALIDATE).build();
+    }
+
+    private static long micros(LocalDateTime updatedAt) {
+        return updatedAt != null ? updatedAt.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + updatedAt.getNano() / 1_000 : 0;
+    }
+}
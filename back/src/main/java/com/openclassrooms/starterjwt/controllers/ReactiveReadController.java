@@ -0,0 +1,79 @@
+package com.openclassrooms.starterjwt.controllers;
+
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.TeacherDto;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.mapper.TeacherMapper;
+import com.openclassrooms.starterjwt.repository.SessionView;
+import com.openclassrooms.starterjwt.services.SessionCursor;
+import com.openclassrooms.starterjwt.services.SessionService;
+import com.openclassrooms.starterjwt.services.TeacherService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+
+// Read-only twin of the session and teacher reads, streamed as NDJSON through Spring MVC's reactive return values.
+// JPA stays blocking, each query runs on the bounded elastic scheduler and lists are fetched one keyset page at a time,
+// so the first sessions are written before the last ones are read and at most one page is held in memory
+@CrossOrigin(origins = "*", maxAge = 3600)
+@RestController
+@RequestMapping("/api/reactive")
+public class ReactiveReadController {
+    private final SessionMapper sessionMapper;
+    private final SessionService sessionService;
+    private final TeacherMapper teacherMapper;
+    private final TeacherService teacherService;
+
+
+    public ReactiveReadController(SessionService sessionService,
+                                  SessionMapper sessionMapper,
+                                  TeacherService teacherService,
+                                  TeacherMapper teacherMapper) {
+        this.sessionMapper = sessionMapper;
+        this.sessionService = sessionService;
+        this.teacherMapper = teacherMapper;
+        this.teacherService = teacherService;
+    }
+
+    @GetMapping(value = "/session", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<SessionDto> findAllSessions() {
+        return page(null)
+                .expand(sessions -> sessions.size() < SessionController.MAX_PAGE_SIZE
+                        ? Mono.empty()
+                        : page(SessionCursor.of(sessions.get(sessions.size() - 1))))
+                .concatMapIterable(this.sessionMapper::fromViews, 1);
+    }
+
+    @GetMapping("/session/{id}")
+    public Mono<ResponseEntity<SessionDto>> findSessionById(@PathVariable("id") String id) {
+        Long sessionId;
+        try {
+            sessionId = Long.valueOf(id);
+        } catch (NumberFormatException e) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+
+        return Mono.fromCallable(() -> this.sessionMapper.fromView(this.sessionService.getViewById(sessionId)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    // Teachers already live in memory, no scheduler hop is needed
+    @GetMapping(value = "/teacher", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<TeacherDto> findAllTeachers() {
+        return Flux.defer(() -> Flux.fromIterable(this.teacherMapper.toDto(this.teacherService.findAll())));
+    }
+
+    // An empty page ends the stream, as does a short one
+    private Mono<List<SessionView>> page(SessionCursor after) {
+        return Mono.fromCallable(() -> this.sessionService.findPage(after, SessionController.MAX_PAGE_SIZE))
+                .filter(sessions -> !sessions.isEmpty())
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -1,15 +1,29 @@
 package com.openclassrooms.starterjwt.controllers;
 
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.openclassrooms.starterjwt.dto.SessionDto;
 import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.payload.response.SessionPageResponse;
+import com.openclassrooms.starterjwt.repository.CollectionVersion;
+import com.openclassrooms.starterjwt.repository.SessionView;
+import com.openclassrooms.starterjwt.services.SessionCursor;
 import com.openclassrooms.starterjwt.services.SessionService;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
@@ -17,45 +31,171 @@ import java.util.List;
 @RequestMapping("/api/session")
 @Log4j2
 public class SessionController {
+    static final int MAX_PAGE_SIZE = 100;
+    // Sessions mapped, written and flushed together by the streaming mode, one participant query each
+    static final int STREAM_CHUNK_SIZE = 100;
+    // Widest calendar view served by the range query
+    static final int MAX_RANGE_DAYS = 366;
+
     private final SessionMapper sessionMapper;
     private final SessionService sessionService;
+    private final ObjectMapper objectMapper;
 
 
     public SessionController(SessionService sessionService,
-                             SessionMapper sessionMapper) {
+                             SessionMapper sessionMapper,
+                             ObjectMapper objectMapper) {
         this.sessionMapper = sessionMapper;
         this.sessionService = sessionService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> findById(@PathVariable("id") String id) {
+    public ResponseEntity<?> findById(@PathVariable("id") String id, WebRequest request) {
         try {
-            Session session = this.sessionService.getById(Long.valueOf(id));
+            SessionView session = this.sessionService.getViewById(Long.valueOf(id));
 
             if (session == null) {
                 return ResponseEntity.notFound().build();
             }
 
-            return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
+            String etag = ETags.of(session.getId(), session.getUpdatedAt());
+            if (request.checkNotModified(etag, ETags.lastModified(session.getUpdatedAt()))) {
+                return ETags.notModified(etag);
+            }
+
+            return ResponseEntity.ok().eTag(etag).cacheControl(ETags.REVALIDATE).body(this.sessionMapper.fromView(session));
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
     @GetMapping()
-    public ResponseEntity<?> findAll() {
-        List<Session> sessions = this.sessionService.findAll();
+    public ResponseEntity<?> findAll(WebRequest request) {
+        CollectionVersion version = this.sessionService.getVersion();
+        String etag = ETags.of(version);
+        if (request.checkNotModified(etag)) {
+            return ETags.notModified(etag);
+        }
+
+        List<SessionView> sessions = this.sessionService.findAllViews();
+
+        return ResponseEntity.ok().eTag(etag).cacheControl(ETags.REVALIDATE).body(this.sessionMapper.fromViews(sessions));
+    }
+
+    // Same JSON array as findAll, written session by session while the rows are read instead of being built in memory first
+    @GetMapping(params = {"stream=true", "!size", "!from", "!to"})
+    public ResponseEntity<StreamingResponseBody> findAllStreamed(WebRequest request) {
+        CollectionVersion version = this.sessionService.getVersion();
+        String etag = ETags.of(version);
+        if (request.checkNotModified(etag)) {
+            return ETags.notModified(etag);
+        }
 
-        return ResponseEntity.ok().body(this.sessionMapper.toDto(sessions));
+        StreamingResponseBody body = outputStream -> {
+            try (JsonGenerator generator = this.objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                this.sessionService.forEachViewChunk(STREAM_CHUNK_SIZE, views -> {
+                    try {
+                        for (SessionDto session : this.sessionMapper.fromViews(views)) {
+                            generator.writeObject(session);
+                        }
+                        generator.flush();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+
+        return ResponseEntity.ok().eTag(etag).cacheControl(ETags.REVALIDATE).contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @GetMapping(params = "size")
+    public ResponseEntity<?> findPage(@RequestParam("size") String size,
+                                      @RequestParam(value = "cursor", required = false) String cursor,
+                                      WebRequest request) {
+        try {
+            int pageSize = Integer.parseInt(size);
+            if (pageSize < 1) {
+                return ResponseEntity.badRequest().build();
+            }
+            pageSize = Math.min(pageSize, MAX_PAGE_SIZE);
+
+            SessionCursor after = cursor != null ? SessionCursor.decode(cursor) : null;
+
+            // Size and cursor are part of the URL, so the collection version is enough to validate a page
+            CollectionVersion version = this.sessionService.getVersion();
+            String etag = ETags.of(version);
+            if (request.checkNotModified(etag)) {
+                return ETags.notModified(etag);
+            }
+
+            // One extra row tells us whether another page exists without a count query
+            List<SessionView> sessions = this.sessionService.findPage(after, pageSize + 1);
+            String nextCursor = null;
+            if (sessions.size() > pageSize) {
+                sessions = sessions.subList(0, pageSize);
+                nextCursor = SessionCursor.of(sessions.get(pageSize - 1)).encode();
+            }
+
+            return ResponseEntity.ok().eTag(etag).cacheControl(ETags.REVALIDATE)
+                    .body(new SessionPageResponse(this.sessionMapper.fromViews(sessions), nextCursor));
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // Sessions of a calendar view, both dates included, optionally for one teacher
+    @GetMapping(params = {"from", "to"})
+    public ResponseEntity<?> findBetween(@RequestParam("from") String from,
+                                         @RequestParam("to") String to,
+                                         @RequestParam(value = "teacherId", required = false) String teacherId,
+                                         WebRequest request) {
+        try {
+            LocalDate start = LocalDate.parse(from);
+            LocalDate end = LocalDate.parse(to);
+            Long teacher = teacherId != null ? Long.valueOf(teacherId) : null;
+            if (end.isBefore(start) || ChronoUnit.DAYS.between(start, end) >= MAX_RANGE_DAYS) {
+                return ResponseEntity.badRequest().build();
+            }
+            // A calendar view is not paged, a size or cursor sent with the range would otherwise be ignored
+            if (request.getParameter("size") != null || request.getParameter("cursor") != null) {
+                return ResponseEntity.badRequest().build();
+            }
+
+            // The range is part of the URL, so the collection version is enough to validate it
+            CollectionVersion version = this.sessionService.getVersion();
+            String etag = ETags.of(version);
+            if (request.checkNotModified(etag)) {
+                return ETags.notModified(etag);
+            }
+
+            List<SessionView> sessions = this.sessionService.findBetween(start, end, teacher);
+
+            return ResponseEntity.ok().eTag(etag).cacheControl(ETags.REVALIDATE).body(this.sessionMapper.fromViews(sessions));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // A range needs both bounds: without these mappings, one bound alone would be ignored and the whole list returned
+    @GetMapping(params = {"from", "!to"})
+    public ResponseEntity<?> findFromWithoutTo() {
+        return ResponseEntity.badRequest().build();
+    }
+
+    @GetMapping(params = {"!from", "to"})
+    public ResponseEntity<?> findToWithoutFrom() {
+        return ResponseEntity.badRequest().build();
     }
 
     @PostMapping()
     public ResponseEntity<?> create(@Valid @RequestBody SessionDto sessionDto) {
-        log.info(sessionDto);
-
         Session session = this.sessionService.create(this.sessionMapper.toEntity(sessionDto));
 
-        log.info(session);
+        log.info("Session {} created with {} participants", session.getId(), session.getSeatsTaken());
         return ResponseEntity.ok().body(this.sessionMapper.toDto(session));
     }
 
@@ -89,9 +229,10 @@ public class SessionController {
     @PostMapping("{id}/participate/{userId}")
     public ResponseEntity<?> participate(@PathVariable("id") String id, @PathVariable("userId") String userId) {
         try {
-            this.sessionService.participate(Long.parseLong(id), Long.parseLong(userId));
+            boolean seated = this.sessionService.participate(Long.parseLong(id), Long.parseLong(userId));
 
-            return ResponseEntity.ok().build();
+            // 202 tells the client the session is full and the user is on its waitlist
+            return seated ? ResponseEntity.ok().build() : ResponseEntity.accepted().build();
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
@@ -2,9 +2,11 @@ package com.openclassrooms.starterjwt.controllers;
 
 import com.openclassrooms.starterjwt.mapper.TeacherMapper;
 import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.CollectionVersion;
 import com.openclassrooms.starterjwt.services.TeacherService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import java.util.List;
 
 @CrossOrigin(origins = "*", maxAge = 3600)
@@ -22,7 +24,7 @@ public class TeacherController {
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<?> findById(@PathVariable("id") String id) {
+    public ResponseEntity<?> findById(@PathVariable("id") String id, WebRequest request) {
         try {
             Teacher teacher = this.teacherService.findById(Long.valueOf(id));
 
@@ -30,16 +32,27 @@ public class TeacherController {
                 return ResponseEntity.notFound().build();
             }
 
-            return ResponseEntity.ok().body(this.teacherMapper.toDto(teacher));
+            String etag = ETags.of(teacher.getId(), teacher.getUpdatedAt());
+            if (request.checkNotModified(etag, ETags.lastModified(teacher.getUpdatedAt()))) {
+                return ETags.notModified(etag);
+            }
+
+            return ResponseEntity.ok().eTag(etag).cacheControl(ETags.REVALIDATE).body(this.teacherMapper.toDto(teacher));
         } catch (NumberFormatException e) {
             return ResponseEntity.badRequest().build();
         }
     }
 
     @GetMapping()
-    public ResponseEntity<?> findAll() {
+    public ResponseEntity<?> findAll(WebRequest request) {
+        CollectionVersion version = this.teacherService.getVersion();
+        String etag = ETags.of(version);
+        if (request.checkNotModified(etag)) {
+            return ETags.notModified(etag);
+        }
+
         List<Teacher> teachers = this.teacherService.findAll();
 
-        return ResponseEntity.ok().body(this.teacherMapper.toDto(teachers));
+        return ResponseEntity.ok().eTag(etag).cacheControl(ETags.REVALIDATE).body(this.teacherMapper.toDto(teachers));
     }
 }
@@ -3,16 +3,22 @@ package com.openclassrooms.starterjwt.mapper;
 import com.openclassrooms.starterjwt.dto.SessionDto;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionView;
+import com.openclassrooms.starterjwt.services.SessionService;
 import com.openclassrooms.starterjwt.services.TeacherService;
 import com.openclassrooms.starterjwt.services.UserService;
+import org.hibernate.Hibernate;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.Mappings;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -24,11 +30,14 @@ public abstract class SessionMapper implements EntityMapper<SessionDto, Session>
     TeacherService teacherService;
     @Autowired
     UserService userService;
+    @Autowired
+    SessionService sessionService;
 
     @Mappings({
             @Mapping(source = "description", target = "description"),
             @Mapping(target = "teacher", expression = "java(sessionDto.getTeacher_id() != null ? this.teacherService.findById(sessionDto.getTeacher_id()) : null)"),
-            @Mapping(target = "users", expression = "java(Optional.ofNullable(sessionDto.getUsers()).orElseGet(Collections::emptyList).stream().map(user_id -> { User user = this.userService.findById(user_id); if (user != null) { return user; } return null; }).collect(Collectors.toList()))"),
+            @Mapping(target = "users", expression = "java(this.participants(sessionDto))"),
+            @Mapping(target = "seatsTaken", ignore = true),
     })
     public abstract Session toEntity(SessionDto sessionDto);
 
@@ -36,7 +45,68 @@ public abstract class SessionMapper implements EntityMapper<SessionDto, Session>
     @Mappings({
             @Mapping(source = "description", target = "description"),
             @Mapping(source = "session.teacher.id", target = "teacher_id"),
-            @Mapping(target = "users", expression = "java(Optional.ofNullable(session.getUsers()).orElseGet(Collections::emptyList).stream().map(u -> u.getId()).collect(Collectors.toList()))"),
+            @Mapping(target = "users", expression = "java(this.participantIds(session))"),
     })
     public abstract SessionDto toDto(Session session);
+
+    @Mappings({
+            @Mapping(source = "teacherId", target = "teacher_id"),
+            @Mapping(target = "users", ignore = true),
+    })
+    protected abstract SessionDto viewToDto(SessionView view);
+
+    public SessionDto fromView(SessionView view) {
+        if (view == null) {
+            return null;
+        }
+
+        SessionDto dto = viewToDto(view);
+        dto.setUsers(this.sessionService.findParticipantIds(Collections.singletonList(view.getId()))
+                .getOrDefault(view.getId(), new ArrayList<>()));
+        return dto;
+    }
+
+    public List<SessionDto> fromViews(List<SessionView> views) {
+        if (views == null) {
+            return null;
+        }
+
+        Map<Long, List<Long>> participants = views.isEmpty()
+                ? Collections.emptyMap()
+                : this.sessionService.findParticipantIds(views.stream().map(SessionView::getId).collect(Collectors.toList()));
+
+        List<SessionDto> dtos = new ArrayList<>(views.size());
+        for (SessionView view : views) {
+            SessionDto dto = viewToDto(view);
+            dto.setUsers(participants.getOrDefault(view.getId(), new ArrayList<>()));
+            dtos.add(dto);
+        }
+        return dtos;
+    }
+
+    protected List<Long> participantIds(Session session) {
+        if (isLoaded(session)) {
+            return userIds(session.getUsers());
+        }
+
+        return this.sessionService.findParticipantIds(Collections.singletonList(session.getId()))
+                .getOrDefault(session.getId(), new ArrayList<>());
+    }
+
+    // Unknown ids are dropped, the others become references resolved with a single query
+    protected List<User> participants(SessionDto sessionDto) {
+        if (sessionDto.getUsers() == null || sessionDto.getUsers().isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        return this.userService.findReferencesById(sessionDto.getUsers());
+    }
+
+    private static boolean isLoaded(Session session) {
+        return session.getUsers() == null || Hibernate.isInitialized(session.getUsers());
+    }
+
+    private static List<Long> userIds(List<User> users) {
+        return Optional.ofNullable(users).orElseGet(Collections::emptyList).stream().map(User::getId).collect(Collectors.toList());
+    }
 }
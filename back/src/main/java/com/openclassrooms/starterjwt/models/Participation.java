@@ -0,0 +1,35 @@
+package com.openclassrooms.starterjwt.models;
+
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import javax.persistence.*;
+import java.io.Serializable;
+
+// Read-only view of the PARTICIPATE join table, so participant lookups touch no other table.
+// Rows are written by the native queries of SessionRepository
+@Entity
+@Immutable
+@Table(name = "PARTICIPATE")
+@IdClass(Participation.Key.class)
+@Getter
+@NoArgsConstructor
+@ToString
+public class Participation {
+    @Id
+    @Column(name = "session_id")
+    private Long sessionId;
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private Long sessionId;
+
+        private Long userId;
+    }
+}
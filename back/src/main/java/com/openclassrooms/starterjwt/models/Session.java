@@ -3,11 +3,15 @@ package com.openclassrooms.starterjwt.models;
 
 import lombok.*;
 import lombok.experimental.Accessors;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import javax.persistence.*;
+import javax.validation.constraints.Min;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
@@ -16,6 +20,8 @@ import java.util.Date;
 import java.util.List;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "sessions")
 @Table(name = "SESSIONS")
 @EntityListeners(AuditingEntityListener.class)
 @Data
@@ -41,15 +47,25 @@ public class Session {
     @Size(max = 2500)
     private String description;
 
+    @Min(1)
+    private Integer capacity;
+
+    @Column(name = "seats_taken", nullable = false)
+    private int seatsTaken;
+
     @OneToOne
     @JoinColumn(name = "teacher_id", referencedColumnName = "id")
     private Teacher teacher;
 
-    @ManyToMany(fetch = FetchType.EAGER)
+    // Not cached: the native PARTICIPATE writes in SessionRepository invalidate cached query results,
+    // but Hibernate never evicts a collection region for them. Read paths use the cached participant query instead
+    @ManyToMany(fetch = FetchType.LAZY)
+    @BatchSize(size = 50)
     @JoinTable(
             name = "PARTICIPATE",
             joinColumns = @JoinColumn( name = "session_id" ),
             inverseJoinColumns = @JoinColumn( name = "user_id" ) )
+    @ToString.Exclude
     private List<User> users;
 
     @CreatedDate
@@ -0,0 +1,17 @@
+package com.openclassrooms.starterjwt.monitoring;
+
+import com.openclassrooms.starterjwt.security.jwt.VerifiedTokenCache;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+// Spring caches are bound by Spring Boot, the verified token cache is a plain Caffeine cache and is bound here
+@Configuration
+public class CacheMetricsConfig {
+
+    @Bean
+    public MeterBinder verifiedTokenCacheMetrics(VerifiedTokenCache verifiedTokenCache) {
+        return registry -> CaffeineCacheMetrics.monitor(registry, verifiedTokenCache.getCache(), "verifiedTokens");
+    }
+}
@@ -0,0 +1,24 @@
+package com.openclassrooms.starterjwt.monitoring;
+
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+// Every statement goes through the proxy so that SqlStatementCounter sees it, the pool stays reachable through unwrap()
+@Component
+public class DataSourceProxyPostProcessor implements BeanPostProcessor {
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource && !(bean instanceof ProxyDataSource)) {
+            return ProxyDataSourceBuilder.create((DataSource) bean)
+                    .name(beanName)
+                    .listener(new SqlStatementCounter())
+                    .build();
+        }
+        return bean;
+    }
+}
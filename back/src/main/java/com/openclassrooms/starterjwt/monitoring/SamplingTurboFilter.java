@@ -0,0 +1,36 @@
+package com.openclassrooms.starterjwt.monitoring;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Keeps one event out of rate for the loggers under loggerName, configured in logback-spring.xml
+public class SamplingTurboFilter extends TurboFilter {
+    private final AtomicLong events = new AtomicLong();
+
+    private String loggerName;
+
+    private long rate = 1;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        // isDebugEnabled() and friends come without a format, they must not consume a sample
+        if (format == null || this.loggerName == null || this.rate <= 1 || !logger.getName().startsWith(this.loggerName)) {
+            return FilterReply.NEUTRAL;
+        }
+
+        return this.events.getAndIncrement() % this.rate == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    public void setLoggerName(String loggerName) {
+        this.loggerName = loggerName;
+    }
+
+    public void setRate(long rate) {
+        this.rate = rate;
+    }
+}
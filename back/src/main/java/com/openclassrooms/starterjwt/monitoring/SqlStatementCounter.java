@@ -0,0 +1,108 @@
+package com.openclassrooms.starterjwt.monitoring;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the JDBC statements executed by the current thread.
+ * Scopes nest, a statement is counted in every scope open on the thread.
+ * Work handed to another thread is counted too when it goes through {@link #propagate(Runnable)}.
+ */
+public class SqlStatementCounter implements QueryExecutionListener {
+    private static final ThreadLocal<Deque<Scope>> SCOPES = new ThreadLocal<>();
+
+    public static Scope open() {
+        Deque<Scope> scopes = SCOPES.get();
+        if (scopes == null) {
+            scopes = new ArrayDeque<>();
+            SCOPES.set(scopes);
+        }
+
+        Scope scope = new Scope();
+        scopes.push(scope);
+        return scope;
+    }
+
+    /**
+     * Runs the task with the scopes open on the calling thread, so that a request keeps counting the statements
+     * of the work it hands over to an executor, even once its own thread has closed them.
+     */
+    public static Runnable propagate(Runnable task) {
+        Deque<Scope> scopes = SCOPES.get();
+        if (scopes == null) {
+            return task;
+        }
+
+        List<Scope> captured = new ArrayList<>(scopes);
+        return () -> {
+            Deque<Scope> previous = SCOPES.get();
+            SCOPES.set(new ArrayDeque<>(captured));
+            try {
+                task.run();
+            } finally {
+                if (previous != null) {
+                    SCOPES.set(previous);
+                } else {
+                    SCOPES.remove();
+                }
+            }
+        };
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    // A batch is one round trip and counts once
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        Deque<Scope> scopes = SCOPES.get();
+        if (scopes == null) {
+            return;
+        }
+
+        for (Scope scope : scopes) {
+            scope.statements.incrementAndGet();
+            scope.elapsedMs.addAndGet(execInfo.getElapsedTime());
+        }
+    }
+
+    public static final class Scope implements AutoCloseable {
+        // Updated from every thread the scope was propagated to
+        private final AtomicInteger statements = new AtomicInteger();
+
+        private final AtomicLong elapsedMs = new AtomicLong();
+
+        private Scope() {
+        }
+
+        public int getStatements() {
+            return this.statements.get();
+        }
+
+        public long getElapsedMs() {
+            return this.elapsedMs.get();
+        }
+
+        @Override
+        public void close() {
+            Deque<Scope> scopes = SCOPES.get();
+            if (scopes == null) {
+                return;
+            }
+
+            scopes.remove(this);
+            if (scopes.isEmpty()) {
+                SCOPES.remove();
+            }
+        }
+    }
+}
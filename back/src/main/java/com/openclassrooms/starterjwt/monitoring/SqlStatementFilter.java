@@ -0,0 +1,116 @@
+package com.openclassrooms.starterjwt.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.security.SecurityProperties;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Runs before Spring Security so that statements issued while authenticating are counted too.
+// Streamed (StreamingResponseBody) and reactive responses keep querying on other threads after the filter chain returns:
+// SqlStatementPropagationConfig carries the scope over to them, and the request is recorded once its response completes
+@Component
+@Order(SecurityProperties.DEFAULT_FILTER_ORDER - 1)
+public class SqlStatementFilter extends OncePerRequestFilter {
+    public static final String STATEMENTS_METRIC = "yoga.http.sql.statements";
+    public static final String TIME_METRIC = "yoga.http.sql.time";
+    public static final String THRESHOLD_EXCEEDED_METRIC = "yoga.http.sql.threshold.exceeded";
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlStatementFilter.class);
+
+    private final MeterRegistry meterRegistry;
+
+    private final int threshold;
+
+    public SqlStatementFilter(MeterRegistry meterRegistry, @Value("${oc.app.sqlStatementThreshold:10}") int threshold) {
+        this.meterRegistry = meterRegistry;
+        this.threshold = threshold;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlStatementCounter.Scope scope = SqlStatementCounter.open();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            scope.close();
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new RecordOnComplete(scope));
+            } else {
+                record(request, scope);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, SqlStatementCounter.Scope scope) {
+        String uri = uri(request);
+        DistributionSummary.builder(STATEMENTS_METRIC)
+                .baseUnit("statements")
+                .tag("uri", uri)
+                .register(this.meterRegistry)
+                .record(scope.getStatements());
+        Timer.builder(TIME_METRIC)
+                .tag("uri", uri)
+                .register(this.meterRegistry)
+                .record(scope.getElapsedMs(), TimeUnit.MILLISECONDS);
+
+        // Usually an N+1: a lazy association or a per-id lookup inside a loop
+        if (scope.getStatements() > this.threshold) {
+            logger.warn("{} {} executed {} SQL statements in {} ms, above the threshold of {}",
+                    request.getMethod(), uri, scope.getStatements(), scope.getElapsedMs(), this.threshold);
+            Counter.builder(THRESHOLD_EXCEEDED_METRIC)
+                    .tag("uri", uri)
+                    .register(this.meterRegistry)
+                    .increment();
+        }
+    }
+
+    // Called after a timeout or an error too, so the request is recorded exactly once
+    private final class RecordOnComplete implements AsyncListener {
+        private final SqlStatementCounter.Scope scope;
+
+        private RecordOnComplete(SqlStatementCounter.Scope scope) {
+            this.scope = scope;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            record((HttpServletRequest) event.getSuppliedRequest(), this.scope);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+
+    // The mapping pattern keeps the tag cardinality bounded, ids in the path would not
+    private static String uri(HttpServletRequest request) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        return pattern != null ? pattern.toString() : "UNKNOWN";
+    }
+}
@@ -0,0 +1,42 @@
+package com.openclassrooms.starterjwt.monitoring;
+
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import reactor.core.scheduler.Schedulers;
+
+// Hands the SQL statement scope of a request over to the threads that finish its response: the MVC async executor
+// runs StreamingResponseBody, the Reactor schedulers run the reactive endpoints. Without it their queries go uncounted
+@Configuration
+public class SqlStatementPropagationConfig implements WebMvcConfigurer, InitializingBean, DisposableBean {
+    private static final String SCHEDULE_HOOK = SqlStatementCounter.class.getName();
+
+    private final AsyncTaskExecutor applicationTaskExecutor;
+
+    public SqlStatementPropagationConfig(
+            @Qualifier(TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME) AsyncTaskExecutor applicationTaskExecutor) {
+        this.applicationTaskExecutor = applicationTaskExecutor;
+    }
+
+    // Same executor as Spring Boot configures, which this configurer replaces since it runs after Boot's own
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(task -> this.applicationTaskExecutor.execute(SqlStatementCounter.propagate(task))));
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        Schedulers.onScheduleHook(SCHEDULE_HOOK, SqlStatementCounter::propagate);
+    }
+
+    @Override
+    public void destroy() {
+        Schedulers.resetOnScheduleHook(SCHEDULE_HOOK);
+    }
+}
@@ -0,0 +1,9 @@
+package com.openclassrooms.starterjwt.repository;
+
+import java.time.LocalDateTime;
+
+public interface CollectionVersion {
+    Long getTotal();
+
+    LocalDateTime getLastModified();
+}
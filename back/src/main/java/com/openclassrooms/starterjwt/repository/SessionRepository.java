@@ -1,9 +1,90 @@
 package com.openclassrooms.starterjwt.repository;
 
 import com.openclassrooms.starterjwt.models.Session;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.annotations.QueryHints.CACHEABLE;
+import static org.hibernate.annotations.QueryHints.NATIVE_SPACES;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 @Repository
 public interface SessionRepository  extends JpaRepository<Session, Long> {
+    // Read paths select plain columns so no entity is hydrated or tracked by the persistence context
+    String VIEW_SELECT = "select s.id as id, s.name as name, s.date as date, s.description as description, s.capacity as capacity, "
+            + "t.id as teacherId, s.createdAt as createdAt, s.updatedAt as updatedAt from Session s left join s.teacher t ";
+
+    String STREAM_FETCH_SIZE = "100";
+
+    @Query("select count(s) as total, max(s.updatedAt) as lastModified from Session s")
+    CollectionVersion findVersion();
+
+    @Query(VIEW_SELECT + "order by s.id asc")
+    List<SessionView> findAllViews();
+
+    // Read through a server-side cursor (useCursorFetch on the MySQL URL), one fetch of STREAM_FETCH_SIZE rows at a time,
+    // which leaves the connection free for the participant lookups made while the stream is open. Connector/J only
+    // enables cursors per connection, so the URL also caches the server-side statements that every other query now uses
+    @Query(VIEW_SELECT + "order by s.id asc")
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = STREAM_FETCH_SIZE))
+    Stream<SessionView> streamAllViews();
+
+    @Query(VIEW_SELECT + "where s.id = :id")
+    @QueryHints(@QueryHint(name = CACHEABLE, value = "true"))
+    Optional<SessionView> findViewById(@Param("id") Long id);
+
+    @Query(VIEW_SELECT + "order by s.date asc, s.id asc")
+    List<SessionView> findFirstPage(Pageable pageable);
+
+    @Query(VIEW_SELECT + "where s.date > :date or (s.date = :date and s.id > :id) order by s.date asc, s.id asc")
+    List<SessionView> findPageAfter(@Param("date") Date date, @Param("id") Long id, Pageable pageable);
+
+    // Range scan on the (date, teacher_id) index, whose order is also the one requested, so no sort is needed
+    @Query(VIEW_SELECT + "where s.date >= :from and s.date < :to order by s.date asc, s.teacher.id asc, s.id asc")
+    List<SessionView> findViewsBetween(@Param("from") Date from, @Param("to") Date to);
+
+    // One teacher's sessions are contiguous in the (teacher_id, date) index, already in date order
+    @Query(VIEW_SELECT + "where s.date >= :from and s.date < :to and s.teacher.id = :teacherId order by s.date asc, s.id asc")
+    List<SessionView> findViewsBetweenForTeacher(@Param("from") Date from, @Param("to") Date to, @Param("teacherId") Long teacherId);
+
+    // JPQL rather than SQL: Hibernate 5.6 cannot cache tuple results of native queries. Participation maps the join table
+    // alone, so PARTICIPATE is the only query space and only the native writes below, which declare it, invalidate the results
+    @Query("select p.sessionId as sessionId, p.userId as userId from Participation p where p.sessionId in (:sessionIds)")
+    @QueryHints(@QueryHint(name = CACHEABLE, value = "true"))
+    List<SessionParticipant> findParticipants(@Param("sessionIds") Collection<Long> sessionIds);
+
+    // Bypasses the second-level cache and locks the row until the end of the transaction, which serializes joins,
+    // leaves and updates on one session. Seat changes are then plain entity updates, so only this session's cache
+    // entry is replaced where a bulk update would have evicted the whole region
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select s from Session s where s.id = :id")
+    Optional<Session> findByIdForUpdate(@Param("id") Long id);
+
+    @Query(value = "SELECT COUNT(*) FROM PARTICIPATE WHERE session_id = :sessionId AND user_id = :userId", nativeQuery = true)
+    long countParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    // Native writes must name the tables they touch, otherwise Hibernate treats them as touching the whole second-level cache
+    @Modifying
+    @Query(value = "INSERT INTO PARTICIPATE (session_id, user_id) VALUES (:sessionId, :userId)", nativeQuery = true)
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = "PARTICIPATE"))
+    int addParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query(value = "DELETE FROM PARTICIPATE WHERE session_id = :sessionId AND user_id = :userId", nativeQuery = true)
+    @QueryHints(@QueryHint(name = NATIVE_SPACES, value = "PARTICIPATE"))
+    int removeParticipant(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
 }
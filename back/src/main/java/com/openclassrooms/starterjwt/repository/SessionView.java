@@ -0,0 +1,22 @@
+package com.openclassrooms.starterjwt.repository;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+
+public interface SessionView {
+    Long getId();
+
+    String getName();
+
+    Date getDate();
+
+    String getDescription();
+
+    Integer getCapacity();
+
+    Long getTeacherId();
+
+    LocalDateTime getCreatedAt();
+
+    LocalDateTime getUpdatedAt();
+}
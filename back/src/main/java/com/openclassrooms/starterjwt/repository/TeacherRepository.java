@@ -2,8 +2,11 @@ package com.openclassrooms.starterjwt.repository;
 
 import com.openclassrooms.starterjwt.models.Teacher;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
 public interface TeacherRepository  extends JpaRepository<Teacher, Long> {
+    @Query("select count(t) as total, max(t.updatedAt) as lastModified from Teacher t")
+    CollectionVersion findVersion();
 }
@@ -0,0 +1,29 @@
+package com.openclassrooms.starterjwt.repository;
+
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface WaitlistRepository extends JpaRepository<WaitlistEntry, Long> {
+    boolean existsBySessionIdAndUserId(Long sessionId, Long userId);
+
+    Optional<WaitlistEntry> findFirstBySessionIdOrderByIdAsc(Long sessionId);
+
+    @Modifying
+    @Query("delete from WaitlistEntry w where w.id = :id")
+    int removeEntry(@Param("id") Long id);
+
+    @Modifying
+    @Query("delete from WaitlistEntry w where w.sessionId = :sessionId and w.userId = :userId")
+    int removeUser(@Param("sessionId") Long sessionId, @Param("userId") Long userId);
+
+    @Modifying
+    @Query("delete from WaitlistEntry w where w.sessionId = :sessionId")
+    int removeSession(@Param("sessionId") Long sessionId);
+}
@@ -1,6 +1,9 @@
 package com.openclassrooms.starterjwt.security;
 
+import java.util.Map;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
@@ -11,9 +14,12 @@ import org.springframework.security.config.annotation.web.configuration.EnableWe
 import org.springframework.security.config.annotation.web.configuration.WebSecurityConfigurerAdapter;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 
+import com.openclassrooms.starterjwt.security.crypto.BCryptStrengthCalibrator;
+import com.openclassrooms.starterjwt.security.crypto.BoundedPasswordEncoder;
 import com.openclassrooms.starterjwt.security.jwt.AuthEntryPointJwt;
 import com.openclassrooms.starterjwt.security.jwt.AuthTokenFilter;
 import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
@@ -31,6 +37,23 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
   @Autowired
   private AuthEntryPointJwt unauthorizedHandler;
 
+  // A strength of -1 calibrates BCrypt at startup against passwordHashTargetMs
+  @Value("${oc.app.passwordHashStrength:-1}")
+  private int passwordHashStrength;
+
+  @Value("${oc.app.passwordHashTargetMs:250}")
+  private long passwordHashTargetMs;
+
+  // 0 sizes the hashing pool from the available cores
+  @Value("${oc.app.passwordHashThreads:0}")
+  private int passwordHashThreads;
+
+  @Value("${oc.app.passwordHashQueueCapacity:32}")
+  private int passwordHashQueueCapacity;
+
+  @Value("${oc.app.passwordHashTimeoutMs:5000}")
+  private long passwordHashTimeoutMs;
+
   @Bean
   public AuthTokenFilter authenticationJwtTokenFilter() {
     return new AuthTokenFilter();
@@ -49,7 +72,17 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
 
   @Bean
   public PasswordEncoder passwordEncoder() {
-    return new BCryptPasswordEncoder();
+    int strength = passwordHashStrength > 0
+        ? passwordHashStrength
+        : BCryptStrengthCalibrator.calibrate(passwordHashTargetMs);
+    BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(strength);
+
+    // Hashes stored before the {id} prefix existed are plain BCrypt, they still match and get rehashed on next login
+    DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder("bcrypt", Map.of("bcrypt", bcrypt));
+    delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+
+    return new BoundedPasswordEncoder(delegating,
+        passwordHashThreads, passwordHashQueueCapacity, passwordHashTimeoutMs);
   }
 
   @Override
@@ -58,6 +91,8 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
       .exceptionHandling().authenticationEntryPoint(unauthorizedHandler).and()
       .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS).and()
       .authorizeRequests().antMatchers("/api/auth/**").permitAll()
+      // Probes and the Prometheus scraper carry no token
+      .antMatchers("/actuator/health", "/actuator/prometheus").permitAll()
       .antMatchers("/api/**").authenticated()
       .anyRequest().authenticated();
 
@@ -0,0 +1,46 @@
+package com.openclassrooms.starterjwt.security.crypto;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+// Picks the highest BCrypt cost whose hashing time on this host stays within a target, each extra cost doubles the time
+public final class BCryptStrengthCalibrator {
+  private static final Logger logger = LoggerFactory.getLogger(BCryptStrengthCalibrator.class);
+
+  public static final int MIN_STRENGTH = 10;
+
+  public static final int MAX_STRENGTH = 16;
+
+  private static final int SAMPLES = 3;
+
+  private BCryptStrengthCalibrator() {
+  }
+
+  public static int calibrate(long targetMs) {
+    BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(MIN_STRENGTH);
+    encoder.encode("calibration");
+
+    long bestNanos = Long.MAX_VALUE;
+    for (int i = 0; i < SAMPLES; i++) {
+      long start = System.nanoTime();
+      encoder.encode("calibration");
+      bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+    }
+
+    int strength = strengthFor(bestNanos / 1_000_000.0, targetMs);
+    logger.info("BCrypt strength calibrated to {} ({} ms at strength {}, target {} ms)",
+        strength, bestNanos / 1_000_000, MIN_STRENGTH, targetMs);
+    return strength;
+  }
+
+  static int strengthFor(double msAtMinStrength, long targetMs) {
+    int strength = MIN_STRENGTH;
+    double estimatedMs = msAtMinStrength;
+    while (strength < MAX_STRENGTH && estimatedMs * 2 <= targetMs) {
+      strength++;
+      estimatedMs *= 2;
+    }
+    return strength;
+  }
+}
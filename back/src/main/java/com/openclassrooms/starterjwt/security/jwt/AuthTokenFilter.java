@@ -10,6 +10,7 @@ import javax.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -17,15 +18,21 @@ import org.springframework.security.web.authentication.WebAuthenticationDetailsS
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
 import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
 
 public class AuthTokenFilter extends OncePerRequestFilter {
   @Autowired
-  private JwtUtils jwtUtils;
+  private VerifiedTokenCache verifiedTokenCache;
 
   @Autowired
   private UserDetailsServiceImpl userDetailsService;
 
+  // Builds the principal from the token claims instead of loading the user, a deleted user then stays authenticated until the token expires.
+  // Off by default: the principal cache already spares most lookups and is evicted when a user is deleted
+  @Value("${oc.app.jwtStatelessPrincipal:false}")
+  private boolean statelessPrincipal;
+
   private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
   @Override
@@ -33,10 +40,11 @@ public class AuthTokenFilter extends OncePerRequestFilter {
       throws ServletException, IOException {
     try {
       String jwt = parseJwt(request);
-      if (jwt != null && jwtUtils.validateJwtToken(jwt)) {
-        String username = jwtUtils.getUserNameFromJwtToken(jwt);
-
-        UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+      JwtClaims claims = jwt != null ? verifiedTokenCache.parseJwtToken(jwt) : null;
+      if (claims != null) {
+        UserDetails userDetails = statelessPrincipal && claims.getUserId() != null
+            ? principalFromClaims(claims)
+            : userDetailsService.loadPrincipal(claims.getSubject());
         UsernamePasswordAuthenticationToken authentication =
             new UsernamePasswordAuthenticationToken(
                 userDetails,
@@ -53,6 +61,17 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     filterChain.doFilter(request, response);
   }
 
+  private static UserDetails principalFromClaims(JwtClaims claims) {
+    return UserDetailsImpl
+            .builder()
+            .id(claims.getUserId())
+            .username(claims.getSubject())
+            .firstName(claims.getFirstName())
+            .lastName(claims.getLastName())
+            .admin(claims.getAdmin())
+            .build();
+  }
+
   private String parseJwt(HttpServletRequest request) {
     String headerAuth = request.getHeader("Authorization");
 
@@ -0,0 +1,24 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.util.Date;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+@Builder
+@AllArgsConstructor
+@Getter
+public class JwtClaims {
+  private String subject;
+
+  private Date expiration;
+
+  private Long userId;
+
+  private String firstName;
+
+  private String lastName;
+
+  private Boolean admin;
+}
@@ -16,6 +16,14 @@ import io.jsonwebtoken.*;
 public class JwtUtils {
   private static final Logger logger = LoggerFactory.getLogger(JwtUtils.class);
 
+  static final String USER_ID_CLAIM = "id";
+
+  static final String FIRST_NAME_CLAIM = "firstName";
+
+  static final String LAST_NAME_CLAIM = "lastName";
+
+  static final String ADMIN_CLAIM = "admin";
+
   @Value("${oc.app.jwtSecret}")
   private String jwtSecret;
 
@@ -28,6 +36,10 @@ public class JwtUtils {
 
     return Jwts.builder()
         .setSubject((userPrincipal.getUsername()))
+        .claim(USER_ID_CLAIM, userPrincipal.getId())
+        .claim(FIRST_NAME_CLAIM, userPrincipal.getFirstName())
+        .claim(LAST_NAME_CLAIM, userPrincipal.getLastName())
+        .claim(ADMIN_CLAIM, userPrincipal.getAdmin())
         .setIssuedAt(new Date())
         .setExpiration(new Date((new Date()).getTime() + jwtExpirationMs))
         .signWith(SignatureAlgorithm.HS512, jwtSecret)
@@ -39,9 +51,24 @@ public class JwtUtils {
   }
 
   public boolean validateJwtToken(String authToken) {
+    return parseJwtToken(authToken) != null;
+  }
+
+  // Verifies the signature and decodes the claims in a single pass, returns null when the token is not valid
+  public JwtClaims parseJwtToken(String authToken) {
     try {
-      Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken);
-      return true;
+      Claims claims = Jwts.parser().setSigningKey(jwtSecret).parseClaimsJws(authToken).getBody();
+      Number userId = claims.get(USER_ID_CLAIM, Number.class);
+
+      return JwtClaims
+              .builder()
+              .subject(claims.getSubject())
+              .expiration(claims.getExpiration())
+              .userId(userId != null ? userId.longValue() : null)
+              .firstName(claims.get(FIRST_NAME_CLAIM, String.class))
+              .lastName(claims.get(LAST_NAME_CLAIM, String.class))
+              .admin(claims.get(ADMIN_CLAIM, Boolean.class))
+              .build();
     } catch (SignatureException e) {
       logger.error("Invalid JWT signature: {}", e.getMessage());
     } catch (MalformedJwtException e) {
@@ -54,6 +81,6 @@ public class JwtUtils {
       logger.error("JWT claims string is empty: {}", e.getMessage());
     }
 
-    return false;
+    return null;
   }
 }
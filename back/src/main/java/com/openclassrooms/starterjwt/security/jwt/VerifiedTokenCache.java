@@ -0,0 +1,86 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Ticker;
+
+@Component
+public class VerifiedTokenCache {
+  private final JwtUtils jwtUtils;
+
+  private final Cache<String, JwtClaims> verifiedTokens;
+
+  @Autowired
+  public VerifiedTokenCache(JwtUtils jwtUtils, @Value("${oc.app.jwtCacheSize:10000}") long maximumSize) {
+    this(jwtUtils, maximumSize, Ticker.systemTicker());
+  }
+
+  VerifiedTokenCache(JwtUtils jwtUtils, long maximumSize, Ticker ticker) {
+    this.jwtUtils = jwtUtils;
+    this.verifiedTokens = Caffeine.newBuilder()
+        .maximumSize(maximumSize)
+        .expireAfter(new UntilTokenExpiry())
+        .ticker(ticker)
+        .recordStats()
+        .build();
+  }
+
+  // Returns the claims of an already verified token without checking its signature again, null when the token is not valid
+  public JwtClaims parseJwtToken(String token) {
+    String digest = digest(token);
+    JwtClaims claims = verifiedTokens.getIfPresent(digest);
+    if (claims != null) {
+      return claims;
+    }
+
+    claims = jwtUtils.parseJwtToken(token);
+    if (claims != null && claims.getExpiration() != null) {
+      verifiedTokens.put(digest, claims);
+    }
+
+    return claims;
+  }
+
+  public Cache<String, JwtClaims> getCache() {
+    return verifiedTokens;
+  }
+
+  // Tokens are keyed by their SHA-256 so raw bearer tokens are never kept in memory
+  private static String digest(String token) {
+    try {
+      byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+      return Base64.getEncoder().encodeToString(hash);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static class UntilTokenExpiry implements Expiry<String, JwtClaims> {
+    @Override
+    public long expireAfterCreate(String digest, JwtClaims claims, long currentTime) {
+      long remainingMs = claims.getExpiration().getTime() - System.currentTimeMillis();
+      return TimeUnit.MILLISECONDS.toNanos(Math.max(0, remainingMs));
+    }
+
+    @Override
+    public long expireAfterUpdate(String digest, JwtClaims claims, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+
+    @Override
+    public long expireAfterRead(String digest, JwtClaims claims, long currentTime, long currentDuration) {
+      return currentDuration;
+    }
+  }
+}
@@ -1,6 +1,9 @@
 package com.openclassrooms.starterjwt.security.services;
 
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -10,27 +13,57 @@ import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
 
 @Service
-public class UserDetailsServiceImpl implements UserDetailsService {
+public class UserDetailsServiceImpl implements UserDetailsService, UserDetailsPasswordService {
+  public static final String PRINCIPAL_CACHE = "principals";
+
   UserRepository userRepository;
 
   UserDetailsServiceImpl(UserRepository userRepository) {
     this.userRepository = userRepository;
   }
 
+  // Used by the login, always reads the stored hash so a changed password is checked against the database
   @Override
   @Transactional
   public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
     User user = userRepository.findByEmail(username)
         .orElseThrow(() -> new UsernameNotFoundException("User Not Found with email: " + username));
 
+    return toUserDetails(user);
+  }
+
+  // Used by AuthTokenFilter on every authenticated request, the signed token already proved who the caller is
+  // Size and TTL of the cache are set by spring.cache.caffeine.spec, deleted users are evicted by UserService
+  @Transactional
+  @Cacheable(PRINCIPAL_CACHE)
+  public UserDetails loadPrincipal(String username) throws UsernameNotFoundException {
+    User user = userRepository.findByEmail(username)
+        .orElseThrow(() -> new UsernameNotFoundException("User Not Found with email: " + username));
+
+    return toUserDetails(user);
+  }
+
+  // Called after a successful login whose stored hash is outdated, the cached principal gets the new hash too
+  @Override
+  @Transactional
+  @CachePut(cacheNames = PRINCIPAL_CACHE, key = "#user.username")
+  public UserDetails updatePassword(UserDetails user, String newPassword) {
+    User stored = userRepository.findByEmail(user.getUsername())
+        .orElseThrow(() -> new UsernameNotFoundException("User Not Found with email: " + user.getUsername()));
+    stored.setPassword(newPassword);
+
+    return toUserDetails(userRepository.save(stored));
+  }
+
+  private static UserDetails toUserDetails(User user) {
     return UserDetailsImpl
             .builder()
             .id(user.getId())
             .username(user.getEmail())
             .lastName(user.getLastName())
             .firstName(user.getFirstName())
+            .admin(user.isAdmin())
             .password(user.getPassword())
             .build();
   }
-
 }
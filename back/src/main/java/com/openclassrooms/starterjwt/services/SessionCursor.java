@@ -0,0 +1,52 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.repository.SessionView;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Position of the last session of a page, ordered by (date, id).
+ * Clients only ever see it as an opaque token.
+ */
+@Getter
+@AllArgsConstructor
+public class SessionCursor {
+    private static final String SEPARATOR = ":";
+
+    private final Date date;
+
+    private final Long id;
+
+    public static SessionCursor of(Session session) {
+        return new SessionCursor(session.getDate(), session.getId());
+    }
+
+    public static SessionCursor of(SessionView session) {
+        return new SessionCursor(session.getDate(), session.getId());
+    }
+
+    public static SessionCursor decode(String token) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = decoded.split(SEPARATOR);
+            if (parts.length != 2) {
+                throw new BadRequestException();
+            }
+
+            return new SessionCursor(new Date(Long.parseLong(parts[0])), Long.valueOf(parts[1]));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException();
+        }
+    }
+
+    public String encode() {
+        String raw = this.date.getTime() + SEPARATOR + this.id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -3,13 +3,31 @@ package com.openclassrooms.starterjwt.services;
 import com.openclassrooms.starterjwt.exception.BadRequestException;
 import com.openclassrooms.starterjwt.exception.NotFoundException;
 import com.openclassrooms.starterjwt.models.Session;
-import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
+import com.openclassrooms.starterjwt.repository.CollectionVersion;
+import com.openclassrooms.starterjwt.repository.SessionParticipant;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.SessionView;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class SessionService {
@@ -17,62 +35,194 @@ public class SessionService {
 
     private final UserRepository userRepository;
 
-    public SessionService(SessionRepository sessionRepository, UserRepository userRepository) {
+    private final WaitlistRepository waitlistRepository;
+
+    public SessionService(SessionRepository sessionRepository, UserRepository userRepository, WaitlistRepository waitlistRepository) {
         this.sessionRepository = sessionRepository;
         this.userRepository = userRepository;
+        this.waitlistRepository = waitlistRepository;
     }
 
     public Session create(Session session) {
+        int seatsTaken = session.getUsers() == null ? 0 : session.getUsers().size();
+        if (session.getCapacity() != null && seatsTaken > session.getCapacity()) {
+            throw new BadRequestException();
+        }
+
+        session.setSeatsTaken(seatsTaken);
         return this.sessionRepository.save(session);
     }
 
+    @Transactional
     public void delete(Long id) {
+        this.waitlistRepository.removeSession(id);
         this.sessionRepository.deleteById(id);
     }
 
-    public List<Session> findAll() {
-        return this.sessionRepository.findAll();
+    // Changes whenever a session is added, removed or updated, joins and leaves included
+    @Transactional(readOnly = true)
+    public CollectionVersion getVersion() {
+        return this.sessionRepository.findVersion();
+    }
+
+    @Transactional(readOnly = true)
+    public List<SessionView> findAllViews() {
+        return this.sessionRepository.findAllViews();
+    }
+
+    @Transactional(readOnly = true)
+    public List<SessionView> findPage(SessionCursor after, int size) {
+        PageRequest limit = PageRequest.of(0, size);
+        if (after == null) {
+            return this.sessionRepository.findFirstPage(limit);
+        }
+
+        return this.sessionRepository.findPageAfter(after.getDate(), after.getId(), limit);
+    }
+
+    // Both days are included; the upper bound becomes the start of the next day so the query stays a plain range
+    @Transactional(readOnly = true)
+    public List<SessionView> findBetween(LocalDate from, LocalDate to, Long teacherId) {
+        Date start = Date.from(from.atStartOfDay(ZoneId.systemDefault()).toInstant());
+        Date end = Date.from(to.plusDays(1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        if (teacherId == null) {
+            return this.sessionRepository.findViewsBetween(start, end);
+        }
+
+        return this.sessionRepository.findViewsBetweenForTeacher(start, end, teacherId);
+    }
+
+    // Views are read from a cursor and handed over chunk by chunk, only the current chunk is held in memory.
+    // Projections are not managed entities, so nothing accumulates in the persistence context while the stream is walked
+    @Transactional(readOnly = true)
+    public void forEachViewChunk(int chunkSize, Consumer<List<SessionView>> consumer) {
+        try (Stream<SessionView> views = this.sessionRepository.streamAllViews()) {
+            List<SessionView> chunk = new ArrayList<>(chunkSize);
+            Iterator<SessionView> iterator = views.iterator();
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == chunkSize) {
+                    consumer.accept(chunk);
+                    chunk = new ArrayList<>(chunkSize);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                consumer.accept(chunk);
+            }
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public Map<Long, List<Long>> findParticipantIds(Collection<Long> sessionIds) {
+        if (sessionIds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<Long, List<Long>> participants = new HashMap<>();
+        for (SessionParticipant participant : this.sessionRepository.findParticipants(sessionIds)) {
+            participants.computeIfAbsent(participant.getSessionId(), sessionId -> new ArrayList<>()).add(participant.getUserId());
+        }
+        return participants;
     }
 
     public Session getById(Long id) {
         return this.sessionRepository.findById(id).orElse(null);
     }
 
+    @Transactional(readOnly = true)
+    public SessionView getViewById(Long id) {
+        return this.sessionRepository.findViewById(id).orElse(null);
+    }
+
+    // Participants and the seat counter only change through participate and noLongerParticipate, so the users sent
+    // with the session are ignored. A request without capacity, like the ones of the session form, keeps the current one.
+    // The row lock makes concurrent joins and leaves wait until the new capacity is set
+    @Transactional
     public Session update(Long id, Session session) {
-        session.setId(id);
-        return this.sessionRepository.save(session);
+        Session current = this.sessionRepository.findByIdForUpdate(id).orElseThrow(NotFoundException::new);
+        Integer capacity = session.getCapacity() != null ? session.getCapacity() : current.getCapacity();
+        if (capacity != null && capacity < current.getSeatsTaken()) {
+            throw new BadRequestException();
+        }
+
+        current.setName(session.getName())
+                .setDate(session.getDate())
+                .setDescription(session.getDescription())
+                .setTeacher(session.getTeacher())
+                .setCapacity(capacity);
+
+        // Seats freed by a larger capacity go to the waitlist in order
+        boolean promoted;
+        do {
+            promoted = promoteFromWaitlist(current);
+        } while (promoted);
+
+        return current;
     }
 
-    public void participate(Long id, Long userId) {
-        Session session = this.sessionRepository.findById(id).orElse(null);
-        User user = this.userRepository.findById(userId).orElse(null);
-        if (session == null || user == null) {
+    /**
+     * @return true when the user got a seat, false when the session is full and the user was put on its waitlist
+     */
+    @Transactional
+    public boolean participate(Long id, Long userId) {
+        if (!this.userRepository.existsById(userId)) {
             throw new NotFoundException();
         }
+        Session session = this.sessionRepository.findByIdForUpdate(id).orElseThrow(NotFoundException::new);
 
-        boolean alreadyParticipate = session.getUsers().stream().anyMatch(o -> o.getId().equals(userId));
-        if(alreadyParticipate) {
+        if (this.sessionRepository.countParticipant(id, userId) > 0
+                || this.waitlistRepository.existsBySessionIdAndUserId(id, userId)) {
             throw new BadRequestException();
         }
 
-        session.getUsers().add(user);
-
-        this.sessionRepository.save(session);
+        try {
+            if (!hasFreeSeat(session)) {
+                this.waitlistRepository.saveAndFlush(new WaitlistEntry().setSessionId(id).setUserId(userId));
+                return false;
+            }
+
+            session.setSeatsTaken(session.getSeatsTaken() + 1);
+            this.sessionRepository.addParticipant(id, userId);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // A concurrent request enrolled the same user first and hit the PARTICIPATE or WAITLIST key
+            throw new BadRequestException();
+        }
     }
 
+    @Transactional
     public void noLongerParticipate(Long id, Long userId) {
-        Session session = this.sessionRepository.findById(id).orElse(null);
-        if (session == null) {
-            throw new NotFoundException();
+        Session session = this.sessionRepository.findByIdForUpdate(id).orElseThrow(NotFoundException::new);
+
+        if (this.sessionRepository.removeParticipant(id, userId) == 0) {
+            if (this.waitlistRepository.removeUser(id, userId) == 0) {
+                throw new BadRequestException();
+            }
+            return;
         }
 
-        boolean alreadyParticipate = session.getUsers().stream().anyMatch(o -> o.getId().equals(userId));
-        if(!alreadyParticipate) {
-            throw new BadRequestException();
+        session.setSeatsTaken(Math.max(session.getSeatsTaken() - 1, 0));
+        promoteFromWaitlist(session);
+    }
+
+    private static boolean hasFreeSeat(Session session) {
+        return session.getCapacity() == null || session.getSeatsTaken() < session.getCapacity();
+    }
+
+    // Runs while holding the session row lock: every change to the waitlist takes it too, so the first entry stays there
+    private boolean promoteFromWaitlist(Session session) {
+        if (!hasFreeSeat(session)) {
+            return false;
         }
 
-        session.setUsers(session.getUsers().stream().filter(user -> !user.getId().equals(userId)).collect(Collectors.toList()));
+        Optional<WaitlistEntry> next = this.waitlistRepository.findFirstBySessionIdOrderByIdAsc(session.getId());
+        if (next.isEmpty()) {
+            return false;
+        }
 
-        this.sessionRepository.save(session);
+        this.waitlistRepository.removeEntry(next.get().getId());
+        session.setSeatsTaken(session.getSeatsTaken() + 1);
+        this.sessionRepository.addParticipant(session.getId(), next.get().getUserId());
+        return true;
     }
 }
@@ -0,0 +1,88 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.CollectionVersion;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable snapshot of the TEACHERS table.
+ * A change builds a new snapshot, readers never lock.
+ * Teachers are copied in and out, so a caller changing or attaching what it got never alters the snapshot.
+ */
+final class TeacherDirectory {
+    private final Map<Long, Teacher> teachers;
+
+    private final List<Teacher> all;
+
+    private final Version version;
+
+    private TeacherDirectory(Map<Long, Teacher> teachers) {
+        this.teachers = Collections.unmodifiableMap(teachers);
+        this.all = new ArrayList<>(teachers.values());
+        this.version = new Version((long) teachers.size(), teachers.values().stream()
+                .map(Teacher::getUpdatedAt)
+                .filter(Objects::nonNull)
+                .max(LocalDateTime::compareTo)
+                .orElse(null));
+    }
+
+    static TeacherDirectory of(List<Teacher> teachers) {
+        Map<Long, Teacher> byId = new LinkedHashMap<>();
+        teachers.forEach(teacher -> byId.put(teacher.getId(), copy(teacher)));
+        return new TeacherDirectory(byId);
+    }
+
+    TeacherDirectory with(Teacher teacher) {
+        Map<Long, Teacher> byId = new LinkedHashMap<>(this.teachers);
+        byId.put(teacher.getId(), copy(teacher));
+        return new TeacherDirectory(byId);
+    }
+
+    Teacher get(Long id) {
+        Teacher teacher = this.teachers.get(id);
+        return teacher != null ? copy(teacher) : null;
+    }
+
+    List<Teacher> all() {
+        List<Teacher> copies = new ArrayList<>(this.all.size());
+        this.all.forEach(teacher -> copies.add(copy(teacher)));
+        return copies;
+    }
+
+    CollectionVersion version() {
+        return this.version;
+    }
+
+    boolean isCurrent(CollectionVersion current) {
+        return current != null
+                && Objects.equals(this.version.getTotal(), current.getTotal())
+                && Objects.equals(this.version.getLastModified(), current.getLastModified());
+    }
+
+    private static Teacher copy(Teacher teacher) {
+        return Teacher.builder()
+                .id(teacher.getId())
+                .lastName(teacher.getLastName())
+                .firstName(teacher.getFirstName())
+                .createdAt(teacher.getCreatedAt())
+                .updatedAt(teacher.getUpdatedAt())
+                .build();
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static final class Version implements CollectionVersion {
+        private final Long total;
+
+        private final LocalDateTime lastModified;
+    }
+}
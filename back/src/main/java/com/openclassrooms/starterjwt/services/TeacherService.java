@@ -1,24 +1,76 @@
 package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.CollectionVersion;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
+// Teachers are served from an in-memory snapshot, the database is only read when it changes
 @Service
 public class TeacherService {
     private final TeacherRepository teacherRepository;
 
+    private final AtomicReference<TeacherDirectory> directory = new AtomicReference<>();
+
     public TeacherService(TeacherRepository teacherRepository) {
         this.teacherRepository = teacherRepository;
     }
 
     public List<Teacher> findAll() {
-        return this.teacherRepository.findAll();
+        return directory().all();
+    }
+
+    public CollectionVersion getVersion() {
+        return directory().version();
     }
 
+    // A teacher missing from the snapshot may have been added since, it is looked up once and kept
     public Teacher findById(Long id) {
-        return this.teacherRepository.findById(id).orElse(null);
+        Teacher teacher = directory().get(id);
+        if (teacher != null) {
+            return teacher;
+        }
+
+        teacher = this.teacherRepository.findById(id).orElse(null);
+        if (teacher != null) {
+            Teacher found = teacher;
+            this.directory.updateAndGet(current -> current == null ? null : current.with(found));
+        }
+        return teacher;
+    }
+
+    public Teacher save(Teacher teacher) {
+        Teacher saved = this.teacherRepository.save(teacher);
+        this.directory.updateAndGet(current -> current == null ? null : current.with(saved));
+        return saved;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        this.directory.set(TeacherDirectory.of(this.teacherRepository.findAll()));
+    }
+
+    // Picks up changes made outside the application, the table is only reloaded when its version moved
+    @Scheduled(fixedDelayString = "${oc.app.teacherDirectoryRefreshMs:60000}", initialDelayString = "${oc.app.teacherDirectoryRefreshMs:60000}")
+    public void refresh() {
+        TeacherDirectory current = this.directory.get();
+        if (current == null || !current.isCurrent(this.teacherRepository.findVersion())) {
+            load();
+        }
+    }
+
+    private TeacherDirectory directory() {
+        TeacherDirectory current = this.directory.get();
+        if (current == null) {
+            load();
+            current = this.directory.get();
+        }
+        return current;
     }
 }
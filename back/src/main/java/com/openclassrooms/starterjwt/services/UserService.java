@@ -2,21 +2,56 @@ package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 @Service
 public class UserService {
     private final UserRepository userRepository;
+    private final CacheManager cacheManager;
 
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, CacheManager cacheManager) {
         this.userRepository = userRepository;
+        this.cacheManager = cacheManager;
     }
 
     public void delete(Long id) {
+        Optional<User> user = this.userRepository.findById(id);
         this.userRepository.deleteById(id);
+
+        // A deleted user must not stay authenticated through a cached principal
+        Cache principals = this.cacheManager.getCache(UserDetailsServiceImpl.PRINCIPAL_CACHE);
+        if (principals != null) {
+            user.ifPresent(deleted -> principals.evict(deleted.getEmail()));
+        }
     }
 
     public User findById(Long id) {
         return this.userRepository.findById(id).orElse(null);
     }
+
+    // One query checks which ids exist, the users come back as uninitialized references in the order given, without duplicates
+    public List<User> findReferencesById(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Set<Long> existingIds = new HashSet<>(this.userRepository.findExistingIds(new LinkedHashSet<>(ids)));
+        return ids.stream()
+                .distinct()
+                .filter(existingIds::contains)
+                .map(this.userRepository::getById)
+                .collect(Collectors.toList());
+    }
 }
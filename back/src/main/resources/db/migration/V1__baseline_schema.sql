@@ -28,7 +28,7 @@ CREATE TABLE `USERS` (
 );
 
 CREATE TABLE `PARTICIPATE` (
-  `user_id` INT, 
+  `user_id` INT,
   `session_id` INT
 );
 
@@ -42,5 +42,5 @@ VALUES ('Margot', 'DELAHAYE'),
 
 
 INSERT INTO USERS (first_name, last_name, admin, email, password)
-VALUES ('Admin', 'Admin', true, 'yoga@studio.com', '$2a$10$.Hsa/ZjUVaHqi0tp9xieMeewrnZxrZ5pQRzddUXE/WjDu2ZThe6Iq'); 
+VALUES ('Admin', 'Admin', true, 'yoga@studio.com', '$2a$10$.Hsa/ZjUVaHqi0tp9xieMeewrnZxrZ5pQRzddUXE/WjDu2ZThe6Iq');
 
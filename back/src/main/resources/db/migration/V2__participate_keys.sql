@@ -0,0 +1,19 @@
+-- One row per (session, user): the table is rebuilt so that duplicates left by the old writes are dropped
+CREATE TABLE `PARTICIPATE_KEYED` (
+  `user_id` INT NOT NULL,
+  `session_id` INT NOT NULL,
+  PRIMARY KEY (`session_id`, `user_id`)
+);
+
+INSERT INTO `PARTICIPATE_KEYED` (`user_id`, `session_id`)
+SELECT DISTINCT `user_id`, `session_id` FROM `PARTICIPATE`
+WHERE `user_id` IS NOT NULL AND `session_id` IS NOT NULL;
+
+DROP TABLE `PARTICIPATE`;
+ALTER TABLE `PARTICIPATE_KEYED` RENAME TO `PARTICIPATE`;
+
+-- The sessions of a user, read from the index alone
+CREATE INDEX `idx_participate_user_session` ON `PARTICIPATE` (`user_id`, `session_id`);
+
+ALTER TABLE `PARTICIPATE` ADD FOREIGN KEY (`user_id`) REFERENCES `USERS` (`id`);
+ALTER TABLE `PARTICIPATE` ADD FOREIGN KEY (`session_id`) REFERENCES `SESSIONS` (`id`);
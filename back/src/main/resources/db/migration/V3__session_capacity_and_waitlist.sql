@@ -0,0 +1,16 @@
+ALTER TABLE `SESSIONS` ADD COLUMN `capacity` INT;
+ALTER TABLE `SESSIONS` ADD COLUMN `seats_taken` INT NOT NULL DEFAULT 0;
+
+CREATE TABLE `WAITLIST` (
+  `id` INT PRIMARY KEY AUTO_INCREMENT,
+  `session_id` INT NOT NULL,
+  `user_id` INT NOT NULL,
+  `created_at` TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  UNIQUE (`session_id`, `user_id`)
+);
+
+ALTER TABLE `WAITLIST` ADD FOREIGN KEY (`user_id`) REFERENCES `USERS` (`id`);
+ALTER TABLE `WAITLIST` ADD FOREIGN KEY (`session_id`) REFERENCES `SESSIONS` (`id`);
+
+-- Existing sessions start with the seat count of their current participants
+UPDATE `SESSIONS` SET `seats_taken` = (SELECT COUNT(*) FROM `PARTICIPATE` WHERE `PARTICIPATE`.`session_id` = `SESSIONS`.`id`);
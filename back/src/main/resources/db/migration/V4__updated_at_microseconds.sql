@@ -0,0 +1,3 @@
+-- Microsecond timestamps, so that two changes within the same second produce different ETags
+ALTER TABLE `TEACHERS` MODIFY `updated_at` DATETIME(6) DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6);
+ALTER TABLE `SESSIONS` MODIFY `updated_at` DATETIME(6) DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6);
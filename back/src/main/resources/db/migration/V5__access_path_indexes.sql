@@ -0,0 +1,52 @@
+-- Calendar views: every session of a date range, or those of one teacher
+CREATE INDEX `idx_sessions_date_teacher` ON `SESSIONS` (`date`, `teacher_id`);
+CREATE INDEX `idx_sessions_teacher_date` ON `SESSIONS` (`teacher_id`, `date`);
+
+-- Login and sign-up look users up by email, which becomes unique. Accounts sharing an email are merged first into
+-- the oldest one, which keeps its password and roles
+CREATE TABLE `USER_MERGE` (
+  `duplicate_id` INT PRIMARY KEY,
+  `kept_id` INT NOT NULL
+);
+
+INSERT INTO `USER_MERGE` (`duplicate_id`, `kept_id`)
+SELECT u.`id`, kept.`id` FROM `USERS` u
+JOIN (SELECT `email`, MIN(`id`) AS `id` FROM `USERS` GROUP BY `email`) kept ON kept.`email` = u.`email`
+WHERE u.`id` <> kept.`id`;
+
+-- Seats of the duplicates go to the kept account, once per session
+INSERT INTO `PARTICIPATE` (`user_id`, `session_id`)
+SELECT DISTINCT m.`kept_id`, p.`session_id` FROM `PARTICIPATE` p
+JOIN `USER_MERGE` m ON m.`duplicate_id` = p.`user_id`
+WHERE NOT EXISTS (SELECT 1 FROM `PARTICIPATE` k WHERE k.`user_id` = m.`kept_id` AND k.`session_id` = p.`session_id`);
+
+DELETE FROM `PARTICIPATE` WHERE `user_id` IN (SELECT `duplicate_id` FROM `USER_MERGE`);
+
+UPDATE `SESSIONS` SET `seats_taken` = (SELECT COUNT(*) FROM `PARTICIPATE` WHERE `PARTICIPATE`.`session_id` = `SESSIONS`.`id`);
+
+-- In a waitlist, the merged account keeps its earliest place, and none at all where it now has a seat
+CREATE TABLE `WAITLIST_MERGED` (
+  `id` INT PRIMARY KEY
+);
+
+INSERT INTO `WAITLIST_MERGED` (`id`)
+SELECT w.`id` FROM `WAITLIST` w
+LEFT JOIN `USER_MERGE` m ON m.`duplicate_id` = w.`user_id`
+WHERE EXISTS (SELECT 1 FROM `PARTICIPATE` p
+              WHERE p.`user_id` = COALESCE(m.`kept_id`, w.`user_id`) AND p.`session_id` = w.`session_id`)
+   OR EXISTS (SELECT 1 FROM `WAITLIST` o
+              LEFT JOIN `USER_MERGE` om ON om.`duplicate_id` = o.`user_id`
+              WHERE o.`session_id` = w.`session_id` AND o.`id` < w.`id`
+                AND COALESCE(om.`kept_id`, o.`user_id`) = COALESCE(m.`kept_id`, w.`user_id`));
+
+DELETE FROM `WAITLIST` WHERE `id` IN (SELECT `id` FROM `WAITLIST_MERGED`);
+
+UPDATE `WAITLIST` SET `user_id` = (SELECT `kept_id` FROM `USER_MERGE` WHERE `duplicate_id` = `WAITLIST`.`user_id`)
+WHERE `user_id` IN (SELECT `duplicate_id` FROM `USER_MERGE`);
+
+DELETE FROM `USERS` WHERE `id` IN (SELECT `duplicate_id` FROM `USER_MERGE`);
+
+DROP TABLE `WAITLIST_MERGED`;
+DROP TABLE `USER_MERGE`;
+
+CREATE UNIQUE INDEX `uk_users_email` ON `USERS` (`email`);
@@ -1,12 +1,17 @@
 package com.openclassrooms.starterjwt.controllers.integration;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.payload.request.LoginRequest;
 import com.openclassrooms.starterjwt.payload.request.SignupRequest;
+import com.openclassrooms.starterjwt.repository.UserRepository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
@@ -14,6 +19,10 @@ import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
 import javax.transaction.Transactional;
 
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 @SpringBootTest
 @AutoConfigureMockMvc
 public class AuthControllerIntTest {
@@ -23,7 +32,14 @@ public class AuthControllerIntTest {
     @Autowired
     private ObjectMapper objectMapper; // On l'utilise pour convertir les objets en chaîne JSON
 
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
     private static final String REGISTER_URL = "/api/auth/register";
+    private static final String LOGIN_URL = "/api/auth/login";
 
     // On teste l'enregistrement réussi d'un nouvel utilisateur
    @Test
@@ -62,6 +78,28 @@ public class AuthControllerIntTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$.message").value("Error: Email is already taken!"));
     }
 
+    // Un hash BCrypt ancien (sans préfixe, coût 4) est accepté puis remplacé de façon transparente à la connexion
+    @Test
+    public void whenLoggingInWithLegacyHash_thenStoredHashIsUpgraded() throws Exception {
+        User user = userRepository.save(new User(UUID.randomUUID().toString().substring(0, 8) + "@legacy.com",
+                "Legacy", "Hash", new BCryptPasswordEncoder(4).encode("test!1234"), false));
+
+        try {
+            LoginRequest loginRequest = new LoginRequest();
+            loginRequest.setEmail(user.getEmail());
+            loginRequest.setPassword("test!1234");
 
+            mockMvc.perform(MockMvcRequestBuilders.post(LOGIN_URL)
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(objectMapper.writeValueAsString(loginRequest)))
+                    .andExpect(MockMvcResultMatchers.status().isOk());
 
-}
\ No newline at end of file
+            // Le hash stocké porte désormais l'identifiant de l'encodeur et le coût calibré
+            String storedHash = userRepository.findByEmail(user.getEmail()).orElseThrow().getPassword();
+            assertTrue(storedHash.startsWith("{bcrypt}"), "Le hash devrait avoir été mis à niveau : " + storedHash);
+            assertTrue(passwordEncoder.matches("test!1234", storedHash));
+        } finally {
+            userRepository.deleteById(user.getId());
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.openclassrooms.starterjwt.controllers.integration;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+// On vérifie que le point de collecte Prometheus est accessible sans token et publie les métriques attendues
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+public class MetricsIntTest {
+    private static final String PROMETHEUS_URL = "/actuator/prometheus";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    @WithMockUser
+    void testEndpointAndServiceCallsShouldBePublishedAsHistograms() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/api/teacher"))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        mockMvc.perform(MockMvcRequestBuilders.get(PROMETHEUS_URL))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string(Matchers.containsString("http_server_requests_seconds_bucket")))
+                .andExpect(MockMvcResultMatchers.content().string(Matchers.containsString("uri=\"/api/teacher\"")))
+                .andExpect(MockMvcResultMatchers.content().string(Matchers.containsString("yoga_service_seconds_bucket")))
+                .andExpect(MockMvcResultMatchers.content().string(Matchers.containsString("class=\"TeacherService\"")));
+    }
+
+    @Test
+    void testPrometheusShouldBeReachableWithoutTokenWithPoolJvmAndCacheMetrics() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get(PROMETHEUS_URL))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().string(Matchers.containsString("hikaricp_connections_active")))
+                .andExpect(MockMvcResultMatchers.content().string(Matchers.containsString("jvm_gc_memory_allocated_bytes_total")))
+                .andExpect(MockMvcResultMatchers.content().string(Matchers.containsString("cache=\"verifiedTokens\"")));
+    }
+
+    @Test
+    void testOtherActuatorEndpointsShouldStillRequireAuthentication() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get("/actuator/metrics"))
+                .andExpect(MockMvcResultMatchers.status().isUnauthorized());
+    }
+}
@@ -0,0 +1,114 @@
+package com.openclassrooms.starterjwt.controllers.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.time.Instant;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+public class ReactiveReadControllerIntTest {
+    private static final String REACTIVE_BASE_URL = "/api/reactive";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private SessionRepository sessionRepository;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Session saveSession(String name) {
+        Session session = new Session();
+        session.setName(name);
+        session.setDescription("mySession");
+        session.setDate(Date.from(Instant.now()));
+        return sessionRepository.save(session);
+    }
+
+    @Test
+    @WithMockUser
+    void whenStreamingSessions_thenEachSessionIsOneJsonLine() throws Exception {
+        // GIVEN: Une session au nom unique
+        String name = "Reactive " + UUID.randomUUID().toString().substring(0, 8);
+        saveSession(name);
+
+        // WHEN: La liste est demandée en NDJSON
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(REACTIVE_BASE_URL + "/session").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult();
+
+        // THEN: Réponse en NDJSON, une fois le flux terminé. Chaque ligne est un objet JSON complet, et la nouvelle session en fait partie
+        String body = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+        boolean found = false;
+        for (String line : body.split("\n")) {
+            found |= name.equals(objectMapper.readTree(line).get("name").asText());
+        }
+        assertTrue(found);
+    }
+
+    @Test
+    @WithMockUser
+    void whenSessionExists_thenFindByIdReturnsIt() throws Exception {
+        // GIVEN: Une session enregistrée
+        Session session = saveSession("Reactive");
+
+        // WHEN
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(REACTIVE_BASE_URL + "/session/{id}", session.getId()))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        // THEN
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.name", Matchers.is("Reactive")));
+    }
+
+    @Test
+    @WithMockUser
+    void whenSessionDoesNotExist_thenFindByIdReturnsNotFound() throws Exception {
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(REACTIVE_BASE_URL + "/session/{id}", Long.MAX_VALUE))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result)).andExpect(MockMvcResultMatchers.status().isNotFound());
+    }
+
+    @Test
+    @WithMockUser
+    void whenStreamingTeachers_thenResponseIsNdjson() throws Exception {
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(REACTIVE_BASE_URL + "/teacher").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+        result.getAsyncResult();
+
+        mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON));
+    }
+
+    @Test
+    void whenNotAuthenticated_thenStreamIsRefused() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get(REACTIVE_BASE_URL + "/session").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(MockMvcResultMatchers.status().isUnauthorized());
+    }
+}
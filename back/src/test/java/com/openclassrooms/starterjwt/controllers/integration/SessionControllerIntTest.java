@@ -1,7 +1,11 @@
 package com.openclassrooms.starterjwt.controllers.integration;
 
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,12 +14,18 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.Date;
+import java.util.UUID;
+
+import static com.openclassrooms.starterjwt.monitoring.SqlStatements.assertStatementCount;
 
 @SpringBootTest
 @AutoConfigureMockMvc
@@ -28,6 +38,10 @@ public class SessionControllerIntTest {
     private MockMvc mockMvc;
     @Autowired
     private SessionRepository sessionRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TeacherRepository teacherRepository;
 
     // Méthode utilitaire pour créer une session
     private Session createSession(String name) {
@@ -51,7 +65,8 @@ public class SessionControllerIntTest {
         sessionRepository.save(session2);
 
         // On stimule une requête HTTP GET vers l'URL de base des sessions, en spécifiant ce que l'on attend
-        mockMvc.perform(MockMvcRequestBuilders.get(SESSION_BASE_URL).contentType(MediaType.APPLICATION_JSON)).andExpect(MockMvcResultMatchers.status().isOk())
+        // Trois requêtes SQL quel que soit le nombre de sessions : la version de la liste, les sessions, puis tous les participants
+        assertStatementCount(3, () -> mockMvc.perform(MockMvcRequestBuilders.get(SESSION_BASE_URL).contentType(MediaType.APPLICATION_JSON))).andExpect(MockMvcResultMatchers.status().isOk())
                 //   .andExpect(MockMvcResultMatchers.jsonPath("$.length()", Matchers.is(20)))
 
                 // On utilise jsonPath pour naviguer dans le JSON et  les Matchers.hasItems pour vérifier les valeurs attendues.
@@ -59,6 +74,152 @@ public class SessionControllerIntTest {
 
     }
 
+    @Test
+    @WithMockUser
+    void testFindAllStreamedShouldReturnTheSameSessionsAsFindAll() throws Exception {
+        sessionRepository.save(createSession("Stream1"));
+        sessionRepository.save(createSession("Stream2"));
+
+        // La réponse est écrite de façon asynchrone, au fil de la lecture des sessions
+        MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(SESSION_BASE_URL).param("stream", "true"))
+                .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                .andReturn();
+
+        String streamed = mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().exists("ETag"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[*].name", Matchers.hasItems("Stream1", "Stream2")))
+                .andReturn().getResponse().getContentAsString();
+
+        // Même tableau JSON que la liste construite en mémoire
+        mockMvc.perform(MockMvcRequestBuilders.get(SESSION_BASE_URL))
+                .andExpect(MockMvcResultMatchers.content().json(streamed, true));
+    }
+
+    @Test
+    @WithMockUser
+    void testFindPageShouldReturnAtMostSizeSessionsAndACursor() throws Exception {
+        // On s'assure qu'il y a au moins deux sessions pour avoir une page suivante
+        sessionRepository.save(createSession("Page1"));
+        sessionRepository.save(createSession("Page2"));
+
+        mockMvc.perform(MockMvcRequestBuilders.get(SESSION_BASE_URL).param("size", "1").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.sessions.length()", Matchers.is(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.nextCursor", Matchers.notNullValue()));
+    }
+
+    @Test
+    @WithMockUser
+    void testFindBetweenShouldReturnOnlyTheSessionsOfTheRangeAndTeacher() throws Exception {
+        Teacher teacher = teacherRepository.save(new Teacher().setFirstName("Range").setLastName("Calendar"));
+        Teacher otherTeacher = teacherRepository.save(new Teacher().setFirstName("Other").setLastName("Calendar"));
+        LocalDate day = LocalDate.of(2031, 7, 31);
+        sessionRepository.save(createSession("RangeLastDay").setDate(atHour(day, 18)).setTeacher(teacher));
+        sessionRepository.save(createSession("RangeFirstDay").setDate(atHour(day.minusDays(30), 9)).setTeacher(teacher));
+        sessionRepository.save(createSession("RangeOtherTeacher").setDate(atHour(day.minusDays(10), 9)).setTeacher(otherTeacher));
+        sessionRepository.save(createSession("RangeNextMonth").setDate(atHour(day.plusDays(1), 9)).setTeacher(teacher));
+
+        // Juillet pour ce professeur : les deux jours extrêmes sont inclus, triés par date
+        mockMvc.perform(MockMvcRequestBuilders.get(SESSION_BASE_URL)
+                        .param("from", "2031-07-01").param("to", "2031-07-31").param("teacherId", teacher.getId().toString()))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().exists("ETag"))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[*].name", Matchers.contains("RangeFirstDay", "RangeLastDay")));
+
+        // Sans professeur, la session de l'autre professeur apparaît aussi
+        mockMvc.perform(MockMvcRequestBuilders.get(SESSION_BASE_URL).param("from", "2031-07-01").param("to", "2031-07-31"))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[*].name", Matchers.hasItems("RangeFirstDay", "RangeOtherTeacher", "RangeLastDay")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[*].name", Matchers.not(Matchers.hasItem("RangeNextMonth"))));
+    }
+
+    @Test
+    @WithMockUser
+    void testFindBetweenWithReversedRangeShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get(SESSION_BASE_URL).param("from", "2031-07-31").param("to", "2031-07-01"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser
+    void testFindBetweenWithASingleBoundShouldReturnBadRequest() throws Exception {
+        // Une seule borne ne doit pas renvoyer toute la liste, même en mode streaming
+        mockMvc.perform(MockMvcRequestBuilders.get(SESSION_BASE_URL).param("from", "2031-07-01"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        mockMvc.perform(MockMvcRequestBuilders.get(SESSION_BASE_URL).param("to", "2031-07-31"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        mockMvc.perform(MockMvcRequestBuilders.get(SESSION_BASE_URL).param("stream", "true").param("to", "2031-07-31"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    @Test
+    @WithMockUser
+    void testFindBetweenWithPagingParametersShouldReturnBadRequest() throws Exception {
+        // La pagination et l'intervalle ne se combinent pas, quelle que soit la borne présente
+        mockMvc.perform(MockMvcRequestBuilders.get(SESSION_BASE_URL)
+                        .param("from", "2031-07-01").param("to", "2031-07-31").param("size", "10"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        mockMvc.perform(MockMvcRequestBuilders.get(SESSION_BASE_URL)
+                        .param("from", "2031-07-01").param("to", "2031-07-31").param("cursor", "abc"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        mockMvc.perform(MockMvcRequestBuilders.get(SESSION_BASE_URL).param("size", "10").param("from", "2031-07-01"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+        mockMvc.perform(MockMvcRequestBuilders.get(SESSION_BASE_URL).param("size", "10").param("to", "2031-07-31"))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
+    private static Date atHour(LocalDate day, int hour) {
+        return Date.from(day.atTime(hour, 0).atZone(ZoneId.systemDefault()).toInstant());
+    }
+
+    @Test
+    @WithMockUser
+    void testFindByIdWithMatchingETagShouldReturnNotModifiedUntilSessionChanges() throws Exception {
+        Session session = sessionRepository.save(createSession("ETag"));
+        User user = userRepository.save(new User(UUID.randomUUID().toString().substring(0, 8) + "@etag.com", "ETag", "User", "password", false));
+
+        // Premier appel : la réponse complète porte un ETag
+        String etag = mockMvc.perform(MockMvcRequestBuilders.get(SESSION_BASE_URL + ID_PATH, session.getId()))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // Même ETag renvoyé par le client : 304 sans corps, la session relue vient du cache de requêtes
+        assertStatementCount(0, () -> mockMvc.perform(MockMvcRequestBuilders.get(SESSION_BASE_URL + ID_PATH, session.getId()).header("If-None-Match", etag)))
+                .andExpect(MockMvcResultMatchers.status().isNotModified())
+                .andExpect(MockMvcResultMatchers.content().string(""));
+
+        // Une inscription modifie la session, l'ancien ETag ne correspond plus
+        mockMvc.perform(MockMvcRequestBuilders.post(SESSION_BASE_URL + ID_PATH + "/participate/{userId}", session.getId(), user.getId()))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+        mockMvc.perform(MockMvcRequestBuilders.get(SESSION_BASE_URL + ID_PATH, session.getId()).header("If-None-Match", etag))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.header().string("ETag", Matchers.not(etag)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.users", Matchers.contains(user.getId().intValue())));
+    }
+
+    @Test
+    @WithMockUser
+    void testFindAllWithMatchingETagShouldReturnNotModified() throws Exception {
+        sessionRepository.save(createSession("ETagList"));
+
+        String etag = mockMvc.perform(MockMvcRequestBuilders.get(SESSION_BASE_URL))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        // Le 304 ne coûte que la requête de version : ni sessions ni participants
+        assertStatementCount(1, () -> mockMvc.perform(MockMvcRequestBuilders.get(SESSION_BASE_URL).header("If-None-Match", etag)))
+                .andExpect(MockMvcResultMatchers.status().isNotModified());
+    }
+
+    @Test
+    @WithMockUser
+    void testFindPageWithInvalidCursorShouldReturnBadRequest() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get(SESSION_BASE_URL).param("size", "10").param("cursor", "@@@").contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isBadRequest());
+    }
+
     @Test
     @WithMockUser
     void testFindByIdAndShouldReturnResponseOk() throws Exception {
@@ -69,8 +230,10 @@ public class SessionControllerIntTest {
 
         session = sessionRepository.save(session); // Sauvegarde pour obtenir un ID généré
 
-        // when & then
-        mockMvc.perform(MockMvcRequestBuilders.get(SESSION_BASE_URL + ID_PATH, session.getId()).contentType(MediaType.APPLICATION_JSON)).andExpect(MockMvcResultMatchers.status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.name", Matchers.is("Stephane"))).andExpect(MockMvcResultMatchers.jsonPath("$.description", Matchers.is("mySession")));
+        Long sessionId = session.getId();
+
+        // when & then : la session avec son professeur, puis ses participants
+        assertStatementCount(2, () -> mockMvc.perform(MockMvcRequestBuilders.get(SESSION_BASE_URL + ID_PATH, sessionId).contentType(MediaType.APPLICATION_JSON))).andExpect(MockMvcResultMatchers.status().isOk()).andExpect(MockMvcResultMatchers.jsonPath("$.name", Matchers.is("Stephane"))).andExpect(MockMvcResultMatchers.jsonPath("$.description", Matchers.is("mySession")));
     }
 
     @Test
@@ -0,0 +1,166 @@
+package com.openclassrooms.starterjwt.controllers.integration;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.monitoring.SqlStatementCounter;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.hamcrest.Matchers;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// On compte les requêtes SQL émises par endpoint pour éviter le retour du chargement EAGER des participants
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@AutoConfigureMockMvc
+public class SessionQueryCountIntTest {
+    private static final String SESSION_BASE_URL = "/api/session";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private SessionRepository sessionRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private TeacherRepository teacherRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Statistics statistics;
+    private Session session;
+    private List<User> users;
+
+    // On prépare une session avec plusieurs participants avant chaque test
+    @BeforeEach
+    public void setup() {
+        users = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            users.add(userRepository.save(new User(UUID.randomUUID().toString().substring(0, 8) + "@count.com", "Count", "Query", "password", false)));
+        }
+
+        session = new Session();
+        session.setName("Comptage");
+        session.setDescription("mySession");
+        session.setDate(Date.from(Instant.now()));
+        session.setUsers(users);
+        session = sessionRepository.save(session);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    @WithMockUser
+    void testFindByIdShouldLoadSessionAndParticipantIdsOnly() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get(SESSION_BASE_URL + "/{id}", session.getId()).contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.users.length()", Matchers.is(3)));
+
+        // Une projection pour la session (professeur en jointure), une pour les identifiants des participants
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(0, userLoads(), "Aucun utilisateur ne devrait être chargé.");
+        assertEquals(0, statistics.getEntityLoadCount(), "La lecture ne devrait hydrater aucune entité.");
+    }
+
+    @Test
+    @WithMockUser
+    void testFindAllShouldFetchParticipantIdsInOneBatch() throws Exception {
+        mockMvc.perform(MockMvcRequestBuilders.get(SESSION_BASE_URL).contentType(MediaType.APPLICATION_JSON))
+                .andExpect(MockMvcResultMatchers.status().isOk());
+
+        // La version de la liste pour l'ETag, une projection pour les sessions et leurs professeurs, et une seule requête pour tous les participants
+        assertEquals(3, statistics.getPrepareStatementCount());
+        assertEquals(0, statistics.getEntityLoadCount(), "La lecture ne devrait hydrater aucune entité.");
+        assertEquals(0, statistics.getCollectionLoadCount(), "La collection des participants ne devrait pas être initialisée.");
+    }
+
+    @Test
+    @WithMockUser
+    void testCreateShouldResolveAllParticipantsInOneQuery() throws Exception {
+        // Une soixantaine de participants, dont un doublon et un identifiant inconnu
+        for (int i = 0; i < 57; i++) {
+            users.add(userRepository.save(new User(UUID.randomUUID().toString().substring(0, 8) + "@count.com", "Count", "Query", "password", false)));
+        }
+        List<Long> participantIds = users.stream().map(User::getId).collect(Collectors.toList());
+        participantIds.add(users.get(0).getId());
+        participantIds.add(999_999L);    // Dans la plage des colonnes INT, mais attribué à aucun utilisateur
+        Teacher teacher = teacherRepository.save(new Teacher().setFirstName("Count").setLastName("Query"));
+
+        SessionDto sessionDto = new SessionDto();
+        sessionDto.setName("Comptage création");
+        sessionDto.setDescription("mySession");
+        sessionDto.setDate(Date.from(Instant.now()));
+        sessionDto.setTeacher_id(teacher.getId());
+        sessionDto.setUsers(participantIds);
+        statistics.clear();
+
+        mockMvc.perform(MockMvcRequestBuilders.post(SESSION_BASE_URL)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(sessionDto)))
+                .andExpect(MockMvcResultMatchers.status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.users.length()", Matchers.is(users.size())));
+
+        // Un SELECT pour le professeur, un seul pour tous les participants, puis l'INSERT de la session et une ligne PARTICIPATE par participant
+        assertEquals(1, statistics.getQueryExecutionCount(), "Les participants devraient être résolus en une seule requête.");
+        assertEquals(3 + users.size(), statistics.getPrepareStatementCount());
+        assertEquals(0, userLoads(), "Aucun utilisateur ne devrait être chargé.");
+    }
+
+    // Les requêtes des réponses en streaming s'exécutent sur d'autres threads et doivent rester dans le compte de la requête HTTP
+    @Test
+    @WithMockUser
+    void testStreamedResponsesShouldCountTheStatementsOfTheirWorkerThreads() throws Exception {
+        try (SqlStatementCounter.Scope scope = SqlStatementCounter.open()) {
+            MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get(SESSION_BASE_URL).param("stream", "true"))
+                    .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result)).andExpect(MockMvcResultMatchers.status().isOk());
+
+            assertEquals(statistics.getPrepareStatementCount(), scope.getStatements());
+        }
+
+        statistics.clear();
+        try (SqlStatementCounter.Scope scope = SqlStatementCounter.open()) {
+            MvcResult result = mockMvc.perform(MockMvcRequestBuilders.get("/api/reactive/session").accept(MediaType.APPLICATION_NDJSON))
+                    .andExpect(MockMvcResultMatchers.request().asyncStarted())
+                    .andReturn();
+            result.getAsyncResult();
+            mockMvc.perform(MockMvcRequestBuilders.asyncDispatch(result)).andExpect(MockMvcResultMatchers.status().isOk());
+
+            assertTrue(statistics.getPrepareStatementCount() > 0);
+            assertEquals(statistics.getPrepareStatementCount(), scope.getStatements());
+        }
+    }
+
+    private long userLoads() {
+        return statistics.getEntityStatistics(User.class.getName()).getLoadCount();
+    }
+}
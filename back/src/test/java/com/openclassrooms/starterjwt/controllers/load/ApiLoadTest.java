@@ -0,0 +1,175 @@
+package com.openclassrooms.starterjwt.controllers.load;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Des utilisateurs virtuels enchaînent connexion, liste des sessions, inscription et désinscription contre une base H2 remplie au démarrage.
+// Exclu du build par défaut : mvn -P loadtest test
+@Tag("load")
+@ActiveProfiles("loadtest")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class ApiLoadTest {
+    private static final String PASSWORD = "password";
+    private static final String LOGIN = "POST /api/auth/login";
+    private static final String LIST = "GET /api/session";
+    private static final String PARTICIPATE = "POST /api/session/{id}/participate/{userId}";
+    private static final String LEAVE = "DELETE /api/session/{id}/participate/{userId}";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Value("${load.teachers}")
+    private int teachers;
+    @Value("${load.users}")
+    private int users;
+    @Value("${load.sessions}")
+    private int sessions;
+    @Value("${load.participantsPerSession}")
+    private int participantsPerSession;
+    @Value("${load.virtualUsers}")
+    private int virtualUsers;
+    @Value("${load.iterations}")
+    private int iterations;
+    @Value("${load.loginEvery}")
+    private int loginEvery;
+    @Value("${oc.app.virtualThreads}")
+    private boolean virtualThreads;
+    @Value("${server.tomcat.threads.max}")
+    private int tomcatThreads;
+    @Value("${spring.datasource.hikari.maximum-pool-size}")
+    private int poolSize;
+
+    private List<Long> userIds;
+    private List<Long> sessionIds;
+
+    // Les premiers utilisateurs sont les utilisateurs virtuels, les suivants remplissent les sessions
+    @BeforeEach
+    public void seed() {
+        String hash = passwordEncoder.encode(PASSWORD);
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < users; i++) {
+            rows.add(new Object[]{"Load", "User" + i, "load" + i + "@yoga.com", hash});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO USERS (first_name, last_name, email, password) VALUES (?, ?, ?, ?)", rows);
+        userIds = jdbcTemplate.queryForList("SELECT id FROM USERS WHERE email LIKE 'load%' ORDER BY id", Long.class);
+
+        rows.clear();
+        for (int i = 0; i < teachers; i++) {
+            rows.add(new Object[]{"Load", "Teacher" + i});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO TEACHERS (first_name, last_name) VALUES (?, ?)", rows);
+        List<Long> teacherIds = jdbcTemplate.queryForList("SELECT id FROM TEACHERS ORDER BY id", Long.class);
+
+        rows.clear();
+        Instant start = Instant.now().truncatedTo(ChronoUnit.HOURS);
+        for (int i = 0; i < sessions; i++) {
+            rows.add(new Object[]{"Load " + i, "Seeded session", Timestamp.from(start.plus(i, ChronoUnit.HOURS)),
+                    participantsPerSession * 2, participantsPerSession, teacherIds.get(i % teacherIds.size())});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO SESSIONS (name, description, date, capacity, seats_taken, teacher_id) VALUES (?, ?, ?, ?, ?, ?)", rows);
+        sessionIds = jdbcTemplate.queryForList("SELECT id FROM SESSIONS WHERE name LIKE 'Load %' ORDER BY id", Long.class);
+
+        rows.clear();
+        List<Long> seated = userIds.subList(virtualUsers, userIds.size());
+        for (int i = 0; i < sessionIds.size(); i++) {
+            for (int j = 0; j < participantsPerSession; j++) {
+                rows.add(new Object[]{sessionIds.get(i), seated.get((i * participantsPerSession + j) % seated.size())});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO PARTICIPATE (session_id, user_id) VALUES (?, ?)", rows);
+    }
+
+    @Test
+    void mixedWorkload() throws Exception {
+        LatencyReport report = new LatencyReport();
+        ExecutorService executor = Executors.newFixedThreadPool(virtualUsers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> runs = new ArrayList<>();
+
+        for (int i = 0; i < virtualUsers; i++) {
+            int index = i;
+            runs.add(executor.submit(() -> {
+                start.await();
+                virtualUser(index, report);
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> run : runs) {
+            run.get(30, TimeUnit.MINUTES);
+        }
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - begin);
+        executor.shutdown();
+
+        // Les deux modes se comparent avec plus d'utilisateurs virtuels que de threads Tomcat, voir le readme
+        System.out.printf("%nrequest threads: %s, virtual users: %d, connection pool: %d%n",
+                virtualThreads ? "virtual" : "platform (max " + tomcatThreads + ")", virtualUsers, poolSize);
+        System.out.println(report.format(elapsed));
+        assertEquals(0, report.totalErrors(), "Aucune requête ne devrait échouer sous la charge.");
+    }
+
+    private void virtualUser(int index, LatencyReport report) {
+        Long userId = userIds.get(index);
+        HttpHeaders headers = new HttpHeaders();
+
+        for (int i = 0; i < iterations; i++) {
+            if (i % loginEvery == 0) {
+                ResponseEntity<Map> login = timed(report, LOGIN, () -> restTemplate.postForEntity("/api/auth/login",
+                        Map.of("email", "load" + index + "@yoga.com", "password", PASSWORD), Map.class));
+                headers.setBearerAuth((String) login.getBody().get("token"));
+            }
+            HttpEntity<Void> authenticated = new HttpEntity<>(headers);
+
+            timed(report, LIST, () -> restTemplate.exchange("/api/session", HttpMethod.GET, authenticated, String.class));
+
+            Long sessionId = sessionIds.get(ThreadLocalRandom.current().nextInt(sessionIds.size()));
+            // 200 quand une place est prise, 202 quand la session est pleine et que l'utilisateur passe en liste d'attente
+            timed(report, PARTICIPATE, () -> restTemplate.exchange("/api/session/{id}/participate/{userId}",
+                    HttpMethod.POST, authenticated, Void.class, sessionId, userId));
+            timed(report, LEAVE, () -> restTemplate.exchange("/api/session/{id}/participate/{userId}",
+                    HttpMethod.DELETE, authenticated, Void.class, sessionId, userId));
+        }
+    }
+
+    private static <T> ResponseEntity<T> timed(LatencyReport report, String endpoint, Supplier<ResponseEntity<T>> call) {
+        long begin = System.nanoTime();
+        ResponseEntity<T> response = call.get();
+        report.record(endpoint, System.nanoTime() - begin, !response.getStatusCode().is2xxSuccessful());
+        return response;
+    }
+}
@@ -0,0 +1,59 @@
+package com.openclassrooms.starterjwt.controllers.load;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Durées relevées par les utilisateurs virtuels, regroupées par endpoint
+class LatencyReport {
+    private final Map<String, List<Long>> samples = new ConcurrentSkipListMap<>();
+    private final Map<String, AtomicInteger> errors = new ConcurrentHashMap<>();
+
+    void record(String endpoint, long nanos, boolean error) {
+        samples.computeIfAbsent(endpoint, key -> Collections.synchronizedList(new ArrayList<>())).add(nanos);
+        if (error) {
+            errors.computeIfAbsent(endpoint, key -> new AtomicInteger()).incrementAndGet();
+        }
+    }
+
+    int totalErrors() {
+        return errors.values().stream().mapToInt(AtomicInteger::get).sum();
+    }
+
+    String format(Duration elapsed) {
+        StringBuilder report = new StringBuilder(String.format("%n%-40s %8s %7s %9s %8s %8s %8s %8s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms"));
+        double seconds = elapsed.toNanos() / 1e9;
+        samples.forEach((endpoint, durations) -> {
+            List<Long> sorted;
+            synchronized (durations) {
+                sorted = new ArrayList<>(durations);
+            }
+            Collections.sort(sorted);
+            report.append(String.format("%-40s %8d %7d %9.1f %8.1f %8.1f %8.1f %8.1f%n",
+                    endpoint,
+                    sorted.size(),
+                    errors.getOrDefault(endpoint, new AtomicInteger()).get(),
+                    sorted.size() / seconds,
+                    millis(percentile(sorted, 0.50)),
+                    millis(percentile(sorted, 0.90)),
+                    millis(percentile(sorted, 0.99)),
+                    millis(sorted.get(sorted.size() - 1))));
+        });
+        return report.append(String.format("elapsed: %.1f s%n", seconds)).toString();
+    }
+
+    // Rang le plus proche, comme pour le p99 des inscriptions concurrentes
+    private static long percentile(List<Long> sorted, double rank) {
+        return sorted.get((int) Math.ceil(sorted.size() * rank) - 1);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
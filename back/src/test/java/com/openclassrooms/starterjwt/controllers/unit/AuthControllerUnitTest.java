@@ -21,12 +21,12 @@ import org.springframework.security.authentication.UsernamePasswordAuthenticatio
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 import java.util.Objects;
-import java.util.Optional;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
@@ -70,29 +70,18 @@ public class AuthControllerUnitTest {
                 .firstName(FirstName)
                 .lastName(LastName)
                 .id(UserId)
+                .admin(IsAdmin)
                 .password(Password)
                 .build();
 
         // Création de 'AuthenticationToken mocké' qui permettra de simuler le processus d'authentification
         UsernamePasswordAuthenticationToken authenticationToken = new UsernamePasswordAuthenticationToken(userDetails, null);
 
-        // Création de 'User mocké' qui permettra de simuler un utilisateur existant dans la base de données
-        User user = User.builder()
-                .id(UserId)
-                .email(Email)
-                .password(Password)
-                .firstName(FirstName)
-                .lastName(LastName)
-                .admin(IsAdmin)
-                .build();
-
         // On configure le comportement attendu des mocks lors de l'authentification
         given(authenticationManager.authenticate(new UsernamePasswordAuthenticationToken(Email, Password)))
                 .willReturn(authenticationToken);
         given(jwtUtils.generateJwtToken(authenticationToken))
                 .willReturn(JwtToken);
-        given(userRepository.findByEmail(Email))
-                .willReturn(Optional.of(user));
 
         // On prépare la requête de login
         LoginRequest loginRequest = new LoginRequest();
@@ -114,6 +103,8 @@ public class AuthControllerUnitTest {
         assertThat(responseBody.getType()).isEqualTo("Bearer");
         assertThat(responseBody.getToken()).isNotNull();
 
+        // Le rôle admin vient du principal authentifié, sans nouvelle requête en base
+        verify(userRepository, never()).findByEmail(Email);
     }
 
     @Test
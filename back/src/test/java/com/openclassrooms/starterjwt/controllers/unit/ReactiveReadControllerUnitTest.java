@@ -0,0 +1,180 @@
+package com.openclassrooms.starterjwt.controllers.unit;
+
+import com.openclassrooms.starterjwt.controllers.ReactiveReadController;
+import com.openclassrooms.starterjwt.dto.SessionDto;
+import com.openclassrooms.starterjwt.dto.TeacherDto;
+import com.openclassrooms.starterjwt.mapper.SessionMapper;
+import com.openclassrooms.starterjwt.mapper.TeacherMapper;
+import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.SessionView;
+import com.openclassrooms.starterjwt.services.SessionCursor;
+import com.openclassrooms.starterjwt.services.SessionService;
+import com.openclassrooms.starterjwt.services.TeacherService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.http.HttpStatus;
+import reactor.test.StepVerifier;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ReactiveReadControllerUnitTest {
+    private static final int PAGE_SIZE = 100;
+
+    @InjectMocks
+    private ReactiveReadController reactiveReadController;
+    @Mock
+    private SessionService sessionService;
+    @Mock
+    private SessionMapper sessionMapper;
+    @Mock
+    private TeacherService teacherService;
+    @Mock
+    private TeacherMapper teacherMapper;
+
+    private static SessionView view(long id) {
+        Map<String, Object> columns = new HashMap<>();
+        columns.put("id", id);
+        columns.put("name", "Session " + id);
+        columns.put("date", Date.from(Instant.parse("2024-01-15T10:00:00Z").plusSeconds(id * 3600)));
+        return new SpelAwareProxyProjectionFactory().createProjection(SessionView.class, columns);
+    }
+
+    private static List<SessionView> views(long from, int count) {
+        List<SessionView> views = new ArrayList<>();
+        for (long id = from; id < from + count; id++) {
+            views.add(view(id));
+        }
+        return views;
+    }
+
+    // Le mapper mocké renvoie un DTO par projection, avec le même identifiant
+    private void mapViewsById() {
+        given(sessionMapper.fromViews(anyList())).willAnswer(invocation -> {
+            List<SessionView> views = invocation.getArgument(0);
+            return views.stream().map(view -> {
+                SessionDto dto = new SessionDto();
+                dto.setId(view.getId());
+                return dto;
+            }).collect(Collectors.toList());
+        });
+    }
+
+    @Test
+    void whenSessionsSpanTwoPages_thenEverySessionIsStreamedInOrder() {
+        // GIVEN: Une page pleine puis une page partielle
+        given(sessionService.findPage(isNull(), eq(PAGE_SIZE))).willReturn(views(1, PAGE_SIZE));
+        given(sessionService.findPage(any(SessionCursor.class), eq(PAGE_SIZE))).willReturn(views(PAGE_SIZE + 1, 1));
+        mapViewsById();
+
+        // WHEN / THEN: Les 101 sessions sont émises dans l'ordre des pages
+        StepVerifier.create(reactiveReadController.findAllSessions().map(SessionDto::getId))
+                .expectNextSequence(views(1, PAGE_SIZE + 1).stream().map(SessionView::getId).collect(Collectors.toList()))
+                .verifyComplete();
+
+        // La seconde page repart de la dernière session de la première
+        ArgumentCaptor<SessionCursor> cursor = ArgumentCaptor.forClass(SessionCursor.class);
+        verify(sessionService, times(2)).findPage(cursor.capture(), eq(PAGE_SIZE));
+        assertEquals(Long.valueOf(PAGE_SIZE), cursor.getAllValues().get(1).getId());
+    }
+
+    @Test
+    void whenLastPageIsFull_thenAnEmptyPageEndsTheStream() {
+        // GIVEN: Exactement une page de sessions
+        given(sessionService.findPage(isNull(), eq(PAGE_SIZE))).willReturn(views(1, PAGE_SIZE));
+        given(sessionService.findPage(any(SessionCursor.class), eq(PAGE_SIZE))).willReturn(Collections.emptyList());
+        mapViewsById();
+
+        // WHEN / THEN: Le flux se termine sans rien de plus, le mapper n'est appelé que pour la page non vide
+        StepVerifier.create(reactiveReadController.findAllSessions())
+                .expectNextCount(PAGE_SIZE)
+                .verifyComplete();
+        verify(sessionMapper, times(1)).fromViews(anyList());
+    }
+
+    @Test
+    void whenNoSession_thenStreamIsEmpty() {
+        // GIVEN: Aucune session en base
+        given(sessionService.findPage(isNull(), eq(PAGE_SIZE))).willReturn(Collections.emptyList());
+
+        // WHEN / THEN: Le flux est vide et le mapper n'est jamais appelé
+        StepVerifier.create(reactiveReadController.findAllSessions()).verifyComplete();
+        verifyNoInteractions(sessionMapper);
+    }
+
+    @Test
+    void whenSessionExists_thenFindByIdReturnsOk() {
+        // GIVEN: Une session connue
+        SessionView view = view(1);
+        SessionDto dto = new SessionDto();
+        dto.setId(1L);
+        given(sessionService.getViewById(1L)).willReturn(view);
+        given(sessionMapper.fromView(view)).willReturn(dto);
+
+        // WHEN / THEN: Réponse 200 avec le DTO
+        StepVerifier.create(reactiveReadController.findSessionById("1"))
+                .assertNext(response -> {
+                    assertEquals(HttpStatus.OK, response.getStatusCode());
+                    assertEquals(dto, response.getBody());
+                })
+                .verifyComplete();
+    }
+
+    @Test
+    void whenSessionIsMissing_thenFindByIdReturnsNotFound() {
+        // GIVEN: Aucune session pour cet identifiant, le mapper renvoie null pour une projection absente
+        given(sessionService.getViewById(2L)).willReturn(null);
+        given(sessionMapper.fromView(null)).willReturn(null);
+
+        // WHEN / THEN: Réponse 404
+        StepVerifier.create(reactiveReadController.findSessionById("2"))
+                .assertNext(response -> assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode()))
+                .verifyComplete();
+    }
+
+    @Test
+    void whenIdIsNotANumber_thenFindByIdReturnsBadRequest() {
+        // WHEN / THEN: Réponse 400 sans appel au service
+        StepVerifier.create(reactiveReadController.findSessionById("Not A Number"))
+                .assertNext(response -> assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode()))
+                .verifyComplete();
+        verifyNoInteractions(sessionService);
+    }
+
+    @Test
+    void whenTeachersAreRequested_thenEachTeacherIsStreamed() {
+        // GIVEN: Deux professeurs dans l'annuaire
+        List<Teacher> teachers = List.of(Teacher.builder().id(1L).build(), Teacher.builder().id(2L).build());
+        TeacherDto first = new TeacherDto();
+        first.setId(1L);
+        TeacherDto second = new TeacherDto();
+        second.setId(2L);
+        given(teacherService.findAll()).willReturn(teachers);
+        given(teacherMapper.toDto(teachers)).willReturn(List.of(first, second));
+
+        // WHEN / THEN: Un élément par professeur
+        StepVerifier.create(reactiveReadController.findAllTeachers())
+                .expectNext(first, second)
+                .verifyComplete();
+    }
+}
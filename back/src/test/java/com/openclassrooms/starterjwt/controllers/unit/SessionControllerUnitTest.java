@@ -1,24 +1,50 @@
 package com.openclassrooms.starterjwt.controllers.unit;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.openclassrooms.starterjwt.controllers.SessionController;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
-
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 import com.openclassrooms.starterjwt.dto.SessionDto;
 import com.openclassrooms.starterjwt.mapper.SessionMapper;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.payload.response.SessionPageResponse;
+import com.openclassrooms.starterjwt.repository.CollectionVersion;
+import com.openclassrooms.starterjwt.repository.SessionView;
+import com.openclassrooms.starterjwt.services.SessionCursor;
 import com.openclassrooms.starterjwt.services.SessionService;
 
 import static org.mockito.Mockito.*;
@@ -36,6 +62,10 @@ public class SessionControllerUnitTest {
     @Mock
     private SessionMapper sessionMapper;
 
+    // Le vrai ObjectMapper, pour relire le JSON écrit par le mode streaming
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
     // Définition des constantes pour les réutiliser dans les tests
     private static final Long SessionID1 = 1L;
     private static final Long SessionID2 = 2L;
@@ -44,6 +74,10 @@ public class SessionControllerUnitTest {
     private static final String NonANumberID = "Not A Number ID";
 
     private Session session1, session2;
+    private SessionView view1, view2;
+    private CollectionVersion version;
+    private MockHttpServletRequest httpRequest;
+    private ServletWebRequest webRequest;
     private SessionDto sessionDto1, sessionDto2;
 
     @BeforeEach
@@ -66,6 +100,18 @@ public class SessionControllerUnitTest {
                 .teacher(Teacher.builder().id(SessionID2).build())
                 .build();
 
+        // Requête HTTP sans en-tête conditionnel, et version courante de la liste des sessions
+        httpRequest = new MockHttpServletRequest();
+        webRequest = new ServletWebRequest(httpRequest, new MockHttpServletResponse());
+        Map<String, Object> versionColumns = new HashMap<>();
+        versionColumns.put("total", 2L);
+        versionColumns.put("lastModified", LocalDateTime.of(2024, 1, 15, 10, 30, 0, 123456000));
+        version = new SpelAwareProxyProjectionFactory().createProjection(CollectionVersion.class, versionColumns);
+
+        // Les projections en lecture seule renvoyées par le service pour les mêmes sessions
+        view1 = createView(session1);
+        view2 = createView(session2);
+
         sessionDto1 = new SessionDto();
         sessionDto1.setId(SessionID1);
         sessionDto1.setName(SessionLastName);
@@ -81,31 +127,62 @@ public class SessionControllerUnitTest {
         sessionDto2.setTeacher_id(SessionID2);
     }
 
+    private SessionView createView(Session session) {
+        Map<String, Object> columns = new HashMap<>();
+        columns.put("id", session.getId());
+        columns.put("name", session.getName());
+        columns.put("date", session.getDate());
+        columns.put("description", session.getDescription());
+        columns.put("teacherId", session.getTeacher().getId());
+        columns.put("updatedAt", LocalDateTime.of(2024, 1, 15, 10, 30, 0, 123456000));
+        return new SpelAwareProxyProjectionFactory().createProjection(SessionView.class, columns);
+    }
+
     @Test
     public void findByIdWhenSessionExistsThenReturnsSession() {
 
         // On configure le comportement attendu du service et du mapper mockés
-        given(sessionService.getById(SessionID1))
-                .willReturn(session1);
-        given(sessionMapper.toDto(session1))
+        given(sessionService.getViewById(SessionID1))
+                .willReturn(view1);
+        given(sessionMapper.fromView(view1))
                 .willReturn(sessionDto1);
 
         // Act     On éxécute la méthode à tester
-        ResponseEntity<?> response = sessionController.findById(SessionID1.toString());
+        ResponseEntity<?> response = sessionController.findById(SessionID1.toString(), webRequest);
 
         // ASSERT Et on vérifie que la réponse a le status OK
         assertEquals(HttpStatus.OK, response.getStatusCode());
     }
 
+    @Test
+    public void findByIdWhenETagMatchesReturnsNotModified() {
+
+        // Le client renvoie l'ETag reçu lors du premier appel
+        given(sessionService.getViewById(SessionID1))
+                .willReturn(view1);
+        ResponseEntity<?> first = sessionController.findById(SessionID1.toString(), webRequest);
+        httpRequest = new MockHttpServletRequest();
+        httpRequest.addHeader("If-None-Match", first.getHeaders().getETag());
+        webRequest = new ServletWebRequest(httpRequest, new MockHttpServletResponse());
+
+        // Act     On rejoue la requête conditionnelle
+        ResponseEntity<?> response = sessionController.findById(SessionID1.toString(), webRequest);
+
+        // ASSERT Et on vérifie la réponse 304 sans corps, le mapper n'ayant servi qu'au premier appel
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+        verify(sessionMapper, times(1)).fromView(view1);
+    }
+
     @Test
     public void findByIdWhenSessionNotFoundReturnsNotFound() {
 
         // On configure pour que le service renvoie un 'null' si la session n'existe pas
-        given(sessionService.getById(SessionID2))
+        given(sessionService.getViewById(SessionID2))
                 .willReturn(null);
 
         // Act     On éxécute la méthode à tester et on récupére de la réponse.
-        ResponseEntity<?> response = sessionController.findById(SessionID2.toString());
+        ResponseEntity<?> response = sessionController.findById(SessionID2.toString(), webRequest);
 
         // ASSERT Et on vérifie que la réponse a le status Not Found
         assertEquals(HttpStatus.NOT_FOUND, response.getStatusCode());
@@ -115,7 +192,7 @@ public class SessionControllerUnitTest {
     public void findByIdWhenInvalidIdReturnsBadRequest() {
 
         // Act     On éxécute la méthode à tester avec un ID non numérique.
-        ResponseEntity<?> response = sessionController.findById(NonANumberID);
+        ResponseEntity<?> response = sessionController.findById(NonANumberID, webRequest);
 
         // ASSERT Et on vérifie que la réponse a le status Bad Request
         assertEquals(HttpStatus.BAD_REQUEST, response.getStatusCode());
@@ -125,14 +202,248 @@ public class SessionControllerUnitTest {
     public void getAllSessionsReturnsSessionsList() {
 
         // On configure le service pour retourner une liste contenant les deux sessions mockées
-        given(sessionService.findAll()).willReturn(Arrays.asList(session1, session2));
+        List<SessionView> views = Arrays.asList(view1, view2);
+        given(sessionService.getVersion()).willReturn(version);
+        given(sessionService.findAllViews()).willReturn(views);
+        given(sessionMapper.fromViews(views)).willReturn(Arrays.asList(sessionDto1, sessionDto2));
 
         // Act     On éxécute la méthode 'findAll' à tester  et on récupére la réponse.
-        ResponseEntity<?> response = sessionController.findAll();
+        ResponseEntity<?> response = sessionController.findAll(webRequest);
 
-        // ASSERT Et on vérifie que la réponse a le status OK
+        // ASSERT Et on vérifie que la réponse a le status OK, sans passer par les entités
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(Arrays.asList(sessionDto1, sessionDto2), response.getBody());
+        verify(sessionMapper, never()).toDto(anyList());
+
+    }
+
+    @Test
+    public void getAllSessionsWhenListUnchangedReturnsNotModified() {
+
+        // Le client a déjà la version courante de la liste
+        given(sessionService.getVersion()).willReturn(version);
+        httpRequest.addHeader("If-None-Match", "\"2-" + (LocalDateTime.of(2024, 1, 15, 10, 30).toEpochSecond(ZoneOffset.UTC) * 1_000_000 + 123456) + "\"");
+
+        // Act     On éxécute la méthode 'findAll' à tester
+        ResponseEntity<?> response = sessionController.findAll(webRequest);
+
+        // ASSERT Et on vérifie que la liste n'a été ni chargée ni convertie
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        verify(sessionService, never()).findAllViews();
+        verifyNoInteractions(sessionMapper);
+    }
+
+    @Test
+    public void getAllSessionsAfterADeleteIgnoresIfModifiedSince() {
+
+        // Une session a été supprimée depuis la copie du client : le nombre baisse, la date de dernière modification reste la même
+        Map<String, Object> afterDelete = new HashMap<>();
+        afterDelete.put("total", 1L);
+        afterDelete.put("lastModified", version.getLastModified());
+        given(sessionService.getVersion()).willReturn(new SpelAwareProxyProjectionFactory().createProjection(CollectionVersion.class, afterDelete));
+        given(sessionService.findAllViews()).willReturn(Collections.singletonList(view1));
+        given(sessionMapper.fromViews(Collections.singletonList(view1))).willReturn(Collections.singletonList(sessionDto1));
+        MockHttpServletResponse httpResponse = new MockHttpServletResponse();
+        httpRequest.addHeader("If-Modified-Since", version.getLastModified().plusMinutes(1).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+
+        // Act
+        ResponseEntity<?> response = sessionController.findAll(new ServletWebRequest(httpRequest, httpResponse));
+
+        // ASSERT La liste est renvoyée, seul l'ETag valide une collection
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(Collections.singletonList(sessionDto1), response.getBody());
+        assertNull(httpResponse.getHeader(HttpHeaders.LAST_MODIFIED));
+    }
+
+    @Test
+    public void getAllSessionsStreamedWritesEveryChunkAsOneJsonArray() throws Exception {
+
+        // Le service remet les sessions en deux morceaux, chacun converti séparément
+        given(sessionService.getVersion()).willReturn(version);
+        willAnswer(invocation -> {
+            Consumer<List<SessionView>> consumer = invocation.getArgument(1);
+            consumer.accept(Collections.singletonList(view1));
+            consumer.accept(Collections.singletonList(view2));
+            return null;
+        }).given(sessionService).forEachViewChunk(anyInt(), any());
+        given(sessionMapper.fromViews(Collections.singletonList(view1))).willReturn(Collections.singletonList(sessionDto1));
+        given(sessionMapper.fromViews(Collections.singletonList(view2))).willReturn(Collections.singletonList(sessionDto2));
+
+        // Act     On écrit la réponse dans un flux en mémoire
+        ResponseEntity<StreamingResponseBody> response = sessionController.findAllStreamed(webRequest);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        response.getBody().writeTo(output);
+
+        // ASSERT Et on vérifie qu'un seul tableau JSON contient les deux sessions, dans l'ordre
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        JsonNode sessions = objectMapper.readTree(output.toByteArray());
+        assertEquals(2, sessions.size());
+        assertEquals(SessionID1.longValue(), sessions.get(0).get("id").asLong());
+        assertEquals(SessionID2.longValue(), sessions.get(1).get("id").asLong());
+        verify(sessionService, never()).findAllViews();
+    }
+
+    @Test
+    public void getAllSessionsStreamedWhenListUnchangedReturnsNotModified() {
+
+        // Le client a déjà la version courante de la liste
+        given(sessionService.getVersion()).willReturn(version);
+        httpRequest.addHeader("If-None-Match", "\"2-" + (LocalDateTime.of(2024, 1, 15, 10, 30).toEpochSecond(ZoneOffset.UTC) * 1_000_000 + 123456) + "\"");
+
+        // Act
+        ResponseEntity<StreamingResponseBody> response = sessionController.findAllStreamed(webRequest);
+
+        // ASSERT Et on vérifie que rien n'est lu
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertNull(response.getBody());
+        verify(sessionService, never()).forEachViewChunk(anyInt(), any());
+    }
+
+    @Test
+    public void findPageWhenMoreSessionsExistReturnsNextCursor() {
+
+        // On configure le service pour renvoyer une ligne de plus que la taille de page demandée
+        given(sessionService.getVersion()).willReturn(version);
+        given(sessionService.findPage(null, 2)).willReturn(Arrays.asList(view1, view2));
+        given(sessionMapper.fromViews(Collections.singletonList(view1))).willReturn(Collections.singletonList(sessionDto1));
+
+        // Act     On demande une page d'une seule session
+        ResponseEntity<?> response = sessionController.findPage("1", null, webRequest);
+        SessionPageResponse page = (SessionPageResponse) response.getBody();
+
+        // ASSERT Et on vérifie que le curseur pointe sur la dernière session renvoyée
         assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(page);
+        assertEquals(1, page.getSessions().size());
+        assertEquals(SessionID1, SessionCursor.decode(page.getNextCursor()).getId());
+    }
 
+    @Test
+    public void findPageWhenLastPageReturnsNoCursor() {
+
+        // On configure le service pour renvoyer moins de sessions que la taille demandée
+        SessionCursor cursor = SessionCursor.of(session1);
+        List<SessionView> sessions = Collections.singletonList(view2);
+        given(sessionService.getVersion()).willReturn(version);
+        given(sessionService.findPage(any(SessionCursor.class), eq(11))).willReturn(sessions);
+        given(sessionMapper.fromViews(sessions)).willReturn(Collections.singletonList(sessionDto2));
+
+        // Act     On demande la page suivant la première session
+        ResponseEntity<?> response = sessionController.findPage("10", cursor.encode(), webRequest);
+        SessionPageResponse page = (SessionPageResponse) response.getBody();
+
+        // ASSERT Et on vérifie qu'il n'y a pas de page suivante
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertNotNull(page);
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    public void findPageWhenSizeIsTooLargeIsCapped() {
+
+        // On configure le service pour renvoyer une page vide
+        given(sessionService.getVersion()).willReturn(version);
+        given(sessionService.findPage(null, 101)).willReturn(Collections.emptyList());
+
+        // Act     On demande une page beaucoup plus grande que la limite
+        ResponseEntity<?> response = sessionController.findPage("5000", null, webRequest);
+
+        // ASSERT Et on vérifie que la taille a été plafonnée
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        verify(sessionService).findPage(null, 101);
+    }
+
+    @Test
+    public void findPageWhenInvalidSizeReturnsBadRequest() {
+
+        // Act     On appelle la pagination avec une taille non numérique puis nulle
+        ResponseEntity<?> notANumber = sessionController.findPage(NonANumberID, null, webRequest);
+        ResponseEntity<?> zero = sessionController.findPage("0", null, webRequest);
+
+        // ASSERT Et on vérifie que la réponse a le status Bad Request
+        assertEquals(HttpStatus.BAD_REQUEST, notANumber.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, zero.getStatusCode());
+        verifyNoInteractions(sessionService);
+    }
+
+    @Test
+    public void findBetweenReturnsTheSessionsOfTheRange() {
+
+        // On configure le service pour renvoyer les sessions d'un professeur sur le mois
+        List<SessionView> sessions = Arrays.asList(view1, view2);
+        given(sessionService.getVersion()).willReturn(version);
+        given(sessionService.findBetween(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31), SessionID1)).willReturn(sessions);
+        given(sessionMapper.fromViews(sessions)).willReturn(Arrays.asList(sessionDto1, sessionDto2));
+
+        // Act     On demande le mois de mars pour ce professeur
+        ResponseEntity<?> response = sessionController.findBetween("2024-03-01", "2024-03-31", SessionID1.toString(), webRequest);
+
+        // ASSERT Et on vérifie que les sessions sont renvoyées avec un ETag
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(Arrays.asList(sessionDto1, sessionDto2), response.getBody());
+        assertNotNull(response.getHeaders().getETag());
+    }
+
+    @Test
+    public void findBetweenWhenListUnchangedReturnsNotModified() {
+
+        // Le client renvoie l'ETag de la version courante
+        given(sessionService.getVersion()).willReturn(version);
+        httpRequest.addHeader("If-None-Match", sessionController.findBetween("2024-03-01", "2024-03-07", null, webRequest).getHeaders().getETag());
+        webRequest = new ServletWebRequest(httpRequest, new MockHttpServletResponse());
+
+        // Act     On redemande la même semaine
+        ResponseEntity<?> response = sessionController.findBetween("2024-03-01", "2024-03-07", null, webRequest);
+
+        // ASSERT Et on vérifie que les sessions ne sont lues qu'une fois
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        verify(sessionService, times(1)).findBetween(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 7), null);
+    }
+
+    @Test
+    public void findBetweenWhenInvalidRangeReturnsBadRequest() {
+
+        // Act     Date illisible, bornes inversées, intervalle trop large et professeur non numérique
+        ResponseEntity<?> notADate = sessionController.findBetween("01/03/2024", "2024-03-31", null, webRequest);
+        ResponseEntity<?> reversed = sessionController.findBetween("2024-03-31", "2024-03-01", null, webRequest);
+        ResponseEntity<?> tooWide = sessionController.findBetween("2024-01-01", "2025-01-01", null, webRequest);
+        ResponseEntity<?> notATeacher = sessionController.findBetween("2024-03-01", "2024-03-31", NonANumberID, webRequest);
+
+        // ASSERT Et on vérifie que la réponse a le status Bad Request sans lecture
+        assertEquals(HttpStatus.BAD_REQUEST, notADate.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, reversed.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, tooWide.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, notATeacher.getStatusCode());
+        verifyNoInteractions(sessionService);
+    }
+
+    @Test
+    public void findBetweenWithPagingParametersReturnsBadRequest() {
+
+        // Act     Une taille de page puis un curseur envoyés avec l'intervalle
+        httpRequest.setParameter("size", "10");
+        ResponseEntity<?> withSize = sessionController.findBetween("2024-03-01", "2024-03-31", null, webRequest);
+        httpRequest.removeParameter("size");
+        httpRequest.setParameter("cursor", "abc");
+        ResponseEntity<?> withCursor = sessionController.findBetween("2024-03-01", "2024-03-31", null, webRequest);
+
+        // ASSERT Et on vérifie que la réponse a le status Bad Request sans lecture
+        assertEquals(HttpStatus.BAD_REQUEST, withSize.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, withCursor.getStatusCode());
+        verifyNoInteractions(sessionService);
+    }
+
+    @Test
+    public void findWithASingleBoundReturnsBadRequest() {
+
+        // Act     Seulement la date de début, puis seulement la date de fin
+        ResponseEntity<?> fromOnly = sessionController.findFromWithoutTo();
+        ResponseEntity<?> toOnly = sessionController.findToWithoutFrom();
+
+        // ASSERT Et on vérifie que la réponse a le status Bad Request sans lecture
+        assertEquals(HttpStatus.BAD_REQUEST, fromOnly.getStatusCode());
+        assertEquals(HttpStatus.BAD_REQUEST, toOnly.getStatusCode());
+        verifyNoInteractions(sessionService);
     }
 
     @Test
@@ -215,8 +526,8 @@ public class SessionControllerUnitTest {
     @Test
     public void participateInSessionWhenValidIdsReturnsOk() {
 
-        // On configure un service pour ne rien faire lors de l'appel à la méthode participate
-        doNothing().when(sessionService).participate(SessionID1, SessionID1);
+        // On configure un service pour indiquer qu'une place a été obtenue
+        given(sessionService.participate(SessionID1, SessionID1)).willReturn(true);
 
         // Act     On appel à la méthode participate avec des ID valides
         ResponseEntity<?> response = sessionController.participate(SessionID1.toString(), String.valueOf(SessionID1));
@@ -225,6 +536,19 @@ public class SessionControllerUnitTest {
         assertEquals(HttpStatus.OK, response.getStatusCode());
     }
 
+    @Test
+    public void participateInFullSessionReturnsAccepted() {
+
+        // On configure un service pour indiquer que la session est complète
+        given(sessionService.participate(SessionID1, SessionID2)).willReturn(false);
+
+        // Act     On appel à la méthode participate sur une session complète
+        ResponseEntity<?> response = sessionController.participate(SessionID1.toString(), String.valueOf(SessionID2));
+
+        // ASSERT Et on vérifie que la réponse a le status 202 (liste d'attente)
+        assertEquals(HttpStatus.ACCEPTED, response.getStatusCode());
+    }
+
     @Test
     public void participateInSessionWhenInvalidSessionIdReturnsBadRequest() {
 
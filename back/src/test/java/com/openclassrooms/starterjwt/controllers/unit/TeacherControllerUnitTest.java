@@ -4,6 +4,7 @@ import com.openclassrooms.starterjwt.controllers.TeacherController;
 import com.openclassrooms.starterjwt.dto.TeacherDto;
 import com.openclassrooms.starterjwt.mapper.TeacherMapper;
 import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.CollectionVersion;
 import com.openclassrooms.starterjwt.services.TeacherService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -11,14 +12,22 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.mockito.Mockito.when;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.Mockito.*;
 
 @AutoConfigureMockMvc
 @ExtendWith(MockitoExtension.class)
@@ -35,6 +44,17 @@ public class TeacherControllerUnitTest {
     @Mock
     private TeacherMapper teacherMapper;
 
+    // Requête HTTP sans en-tête conditionnel
+    private final MockHttpServletRequest httpRequest = new MockHttpServletRequest();
+    private final ServletWebRequest webRequest = new ServletWebRequest(httpRequest, new MockHttpServletResponse());
+
+    private CollectionVersion version(Long total, LocalDateTime lastModified) {
+        Map<String, Object> columns = new HashMap<>();
+        columns.put("total", total);
+        columns.put("lastModified", lastModified);
+        return new SpelAwareProxyProjectionFactory().createProjection(CollectionVersion.class, columns);
+    }
+
     @Test
     void testFindTeacherById_shouldReturnResponseOk() {
         // given
@@ -55,7 +75,7 @@ public class TeacherControllerUnitTest {
         when(teacherMapper.toDto(mockTeacher)).thenReturn(mockUserDto);
 
         // Act
-        ResponseEntity<?> responseEntity = teacherController.findById(TeacherID1.toString());
+        ResponseEntity<?> responseEntity = teacherController.findById(TeacherID1.toString(), webRequest);
 
         // then
         assertEquals(200, responseEntity.getStatusCodeValue());
@@ -69,7 +89,7 @@ public class TeacherControllerUnitTest {
         when(teacherService.findById(TeacherID2)).thenReturn(null);
 
         // Act
-        ResponseEntity<?> responseEntity = teacherController.findById(TeacherID2.toString());
+        ResponseEntity<?> responseEntity = teacherController.findById(TeacherID2.toString(), webRequest);
 
         // then
         assertEquals(404, responseEntity.getStatusCodeValue());
@@ -78,7 +98,7 @@ public class TeacherControllerUnitTest {
     @Test
     void testTeacherFindById_InvalidId_shouldReturnBadRequest() {
         // Act
-        ResponseEntity<?> response = teacherController.findById(NotANumberId);
+        ResponseEntity<?> response = teacherController.findById(NotANumberId, webRequest);
 
         // then
         assertEquals(400, response.getStatusCodeValue());
@@ -104,10 +124,11 @@ public class TeacherControllerUnitTest {
         List<Teacher> teachers = new ArrayList<>();
         teachers.add(mockTeacher);
         teachers.add(mockTeacher2);
+        when(teacherService.getVersion()).thenReturn(version(2L, mockTeacher2.getUpdatedAt()));
         when(teacherService.findAll()).thenReturn(teachers);
 
         // Act
-        ResponseEntity<?> response = teacherController.findAll();
+        ResponseEntity<?> response = teacherController.findAll(webRequest);
 
         // then
         assertEquals(200, response.getStatusCodeValue());
@@ -115,4 +136,60 @@ public class TeacherControllerUnitTest {
 
     }
 
+    @Test
+    void testFindTeacherById_whenNotModifiedSince_shouldReturnNotModifiedWithoutMapping() {
+        // given : le client a une copie datant de la dernière modification du professeur
+        LocalDateTime updatedAt = LocalDateTime.of(2024, 1, 15, 10, 30);
+        Teacher mockTeacher = Teacher.builder()
+                .id(TeacherID1)
+                .firstName(FirstName)
+                .lastName(LastName)
+                .updatedAt(updatedAt)
+                .build();
+        when(teacherService.findById(TeacherID1)).thenReturn(mockTeacher);
+        httpRequest.addHeader("If-Modified-Since", updatedAt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+
+        // Act
+        ResponseEntity<?> response = teacherController.findById(TeacherID1.toString(), webRequest);
+
+        // then
+        assertEquals(304, response.getStatusCodeValue());
+        verifyNoInteractions(teacherMapper);
+    }
+
+    @Test
+    void testFindAllTeachers_whenATeacherWasDeleted_shouldIgnoreIfModifiedSince() {
+        // given : un professeur a été supprimé, la date de dernière modification de la liste n'a pas bougé
+        LocalDateTime lastModified = LocalDateTime.of(2024, 1, 15, 10, 30);
+        when(teacherService.getVersion()).thenReturn(version(1L, lastModified));
+        when(teacherService.findAll()).thenReturn(new ArrayList<>());
+        MockHttpServletResponse httpResponse = new MockHttpServletResponse();
+        httpRequest.addHeader("If-Modified-Since", lastModified.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+
+        // Act
+        ResponseEntity<?> response = teacherController.findAll(new ServletWebRequest(httpRequest, httpResponse));
+
+        // then : seul l'ETag valide la liste
+        assertEquals(200, response.getStatusCodeValue());
+        assertNull(httpResponse.getHeader("Last-Modified"));
+    }
+
+    @Test
+    void testFindAllTeachers_whenETagMatches_shouldNotLoadTeachers() {
+        // given : une première réponse donne l'ETag de la liste
+        CollectionVersion current = version(2L, LocalDateTime.of(2024, 1, 15, 10, 30));
+        when(teacherService.getVersion()).thenReturn(current);
+        when(teacherService.findAll()).thenReturn(new ArrayList<>());
+        String etag = teacherController.findAll(webRequest).getHeaders().getETag();
+
+        MockHttpServletRequest conditional = new MockHttpServletRequest();
+        conditional.addHeader("If-None-Match", etag);
+
+        // Act
+        ResponseEntity<?> response = teacherController.findAll(new ServletWebRequest(conditional, new MockHttpServletResponse()));
+
+        // then : la liste n'est chargée que pour la première réponse
+        assertEquals(304, response.getStatusCodeValue());
+        verify(teacherService, times(1)).findAll();
+    }
 }
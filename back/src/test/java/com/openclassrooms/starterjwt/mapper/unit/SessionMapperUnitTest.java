@@ -4,15 +4,26 @@ package com.openclassrooms.starterjwt.mapper.unit;
 import com.openclassrooms.starterjwt.dto.SessionDto;
 import com.openclassrooms.starterjwt.mapper.SessionMapperImpl;
 import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionView;
+import com.openclassrooms.starterjwt.services.SessionService;
+import com.openclassrooms.starterjwt.services.UserService;
+import org.hibernate.collection.internal.PersistentBag;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
+import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.projection.SpelAwareProxyProjectionFactory;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 public class SessionMapperUnitTest {
@@ -24,6 +35,12 @@ public class SessionMapperUnitTest {
     @InjectMocks
     private SessionMapperImpl sessionMapper;
 
+    @Mock
+    private SessionService sessionService;
+
+    @Mock
+    private UserService userService;
+
 
     // Définition d'une méthode utilitaire pour créer des objets SessionDto.
     private SessionDto createSessionDto(Long id, String name) {
@@ -67,6 +84,21 @@ public class SessionMapperUnitTest {
         assertEquals(dtoList.get(0).getId(), entityList.get(0).getId());
         assertEquals(dtoList.get(1).getName(), entityList.get(1).getName());
     }
+    // Test pour vérifier que tous les participants d'une session sont résolus en un seul appel, sans requête par identifiant
+    @Test
+    void whenConvertingSessionDtoWithParticipants_expectSingleBatchedResolution() {
+        SessionDto sessionDto = createSessionDto(SESSION_ID_1, SESSION_NAME_1);
+        sessionDto.setUsers(Arrays.asList(3L, 4L, 99L));
+        List<User> users = Arrays.asList(new User().setId(3L), new User().setId(4L));
+        when(userService.findReferencesById(sessionDto.getUsers())).thenReturn(users);
+
+        Session result = sessionMapper.toEntity(sessionDto);
+
+        assertEquals(users, result.getUsers());
+        verify(userService, times(1)).findReferencesById(anyCollection());
+        verify(userService, never()).findById(anyLong());
+    }
+
     @Test
     void whenConvertingNullSessionDtoToEntity_expectNull() {
         assertNull(sessionMapper.toEntity((SessionDto) null), "Converting a null SessionDto to entity should return null.");
@@ -101,5 +133,63 @@ public class SessionMapperUnitTest {
         assertNull(sessionMapper.toDto((Session) null), "Converting a null Session to Dto should return null.");
     }
 
+    // Test pour vérifier qu'une session seule ne va chercher que les identifiants de ses participants
+    @Test
+    void whenConvertingSessionWithLazyParticipants_expectParticipantIdsOnly() {
+        Session session = createSession(SESSION_ID_1, SESSION_NAME_1);
+        session.setUsers(lazyUsers());
+        when(sessionService.findParticipantIds(Collections.singletonList(SESSION_ID_1)))
+                .thenReturn(Collections.singletonMap(SESSION_ID_1, Collections.singletonList(7L)));
+
+        SessionDto resultDto = sessionMapper.toDto(session);
+
+        assertEquals(Collections.singletonList(7L), resultDto.getUsers());
+    }
+
+    // Test pour vérifier qu'une liste de projections est convertie avec une seule recherche des participants
+    @Test
+    void whenConvertingViews_expectMatchingDtosAndSingleParticipantLookup() {
+        SessionView view1 = createView(SESSION_ID_1, SESSION_NAME_1, 10L);
+        SessionView view2 = createView(2L, "Session 2", null);
+        when(sessionService.findParticipantIds(Arrays.asList(SESSION_ID_1, 2L)))
+                .thenReturn(Collections.singletonMap(SESSION_ID_1, Arrays.asList(5L, 6L)));
+
+        List<SessionDto> resultDtoList = sessionMapper.fromViews(Arrays.asList(view1, view2));
+
+        assertEquals(SESSION_NAME_1, resultDtoList.get(0).getName());
+        assertEquals(Long.valueOf(10L), resultDtoList.get(0).getTeacher_id());
+        assertEquals(Arrays.asList(5L, 6L), resultDtoList.get(0).getUsers());
+        assertNull(resultDtoList.get(1).getTeacher_id());
+        assertTrue(resultDtoList.get(1).getUsers().isEmpty());
+        verify(sessionService, times(1)).findParticipantIds(anyCollection());
+    }
+
+    // Test pour vérifier qu'une projection seule est convertie avec ses participants, et qu'une projection nulle donne null
+    @Test
+    void whenConvertingSingleView_expectDtoWithParticipants() {
+        SessionView view = createView(SESSION_ID_1, SESSION_NAME_1, 10L);
+        when(sessionService.findParticipantIds(Collections.singletonList(SESSION_ID_1)))
+                .thenReturn(Collections.singletonMap(SESSION_ID_1, Collections.singletonList(7L)));
 
+        SessionDto resultDto = sessionMapper.fromView(view);
+
+        assertEquals(SESSION_ID_1, resultDto.getId());
+        assertEquals(Collections.singletonList(7L), resultDto.getUsers());
+        assertNull(sessionMapper.fromView(null));
+        assertTrue(sessionMapper.fromViews(Collections.emptyList()).isEmpty());
+    }
+
+    private SessionView createView(Long id, String name, Long teacherId) {
+        Map<String, Object> columns = new HashMap<>();
+        columns.put("id", id);
+        columns.put("name", name);
+        columns.put("teacherId", teacherId);
+        return new SpelAwareProxyProjectionFactory().createProjection(SessionView.class, columns);
+    }
+
+    // Collection Hibernate non initialisée, comme celle d'une session chargée sans ses participants
+    @SuppressWarnings("unchecked")
+    private static List<User> lazyUsers() {
+        return new PersistentBag();
+    }
 }
@@ -0,0 +1,53 @@
+package com.openclassrooms.starterjwt.monitoring;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.core.spi.FilterReply;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SamplingTurboFilterTest {
+    private final LoggerContext context = new LoggerContext();
+    private final Logger sqlLogger = context.getLogger("org.hibernate.SQL");
+    private SamplingTurboFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new SamplingTurboFilter();
+        filter.setLoggerName("org.hibernate.SQL");
+        filter.setRate(3);
+    }
+
+    private FilterReply log(Logger logger) {
+        return filter.decide(null, logger, Level.DEBUG, "select 1", null, null);
+    }
+
+    @Test
+    void whenRateIsThree_thenOneStatementOutOfThreeIsKept() {
+        // Le premier est gardé, puis un sur trois
+        assertEquals(FilterReply.NEUTRAL, log(sqlLogger));
+        assertEquals(FilterReply.DENY, log(sqlLogger));
+        assertEquals(FilterReply.DENY, log(sqlLogger));
+        assertEquals(FilterReply.NEUTRAL, log(sqlLogger));
+    }
+
+    @Test
+    void whenLevelIsOnlyChecked_thenNoSampleIsConsumed() {
+        // isDebugEnabled() passe sans message : il ne doit pas décaler l'échantillonnage
+        assertEquals(FilterReply.NEUTRAL, filter.decide(null, sqlLogger, Level.DEBUG, null, null, null));
+        assertEquals(FilterReply.NEUTRAL, log(sqlLogger));
+        assertEquals(FilterReply.DENY, log(sqlLogger));
+    }
+
+    @Test
+    void whenLoggerIsNotSampled_thenEveryEventIsKept() {
+        Logger other = context.getLogger("com.openclassrooms.starterjwt");
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(FilterReply.NEUTRAL, log(other));
+        }
+    }
+}
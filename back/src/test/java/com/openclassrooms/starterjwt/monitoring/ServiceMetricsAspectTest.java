@@ -0,0 +1,68 @@
+package com.openclassrooms.starterjwt.monitoring;
+
+import com.openclassrooms.starterjwt.exception.NotFoundException;
+import com.openclassrooms.starterjwt.repository.TeacherRepository;
+import com.openclassrooms.starterjwt.services.TeacherService;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ServiceMetricsAspectTest {
+
+    @Mock
+    private TeacherRepository teacherRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private TeacherService teacherService;
+
+    // Le service est enveloppé par l'aspect comme le ferait Spring
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        AspectJProxyFactory factory = new AspectJProxyFactory(new TeacherService(teacherRepository));
+        factory.setProxyTargetClass(true);
+        factory.addAspect(new ServiceMetricsAspect(meterRegistry));
+        teacherService = factory.getProxy();
+    }
+
+    @Test
+    void whenServiceMethodIsCalled_thenItIsTimedWithClassAndMethodTags() {
+        // GIVEN: Aucun enseignant en base
+        when(teacherRepository.findAll()).thenReturn(new ArrayList<>());
+
+        // WHEN: Deux appels au service
+        teacherService.findAll();
+        teacherService.findAll();
+
+        // THEN: Un timer par méthode, avec les deux appels
+        Timer timer = meterRegistry.find(ServiceMetricsAspect.SERVICE_TIMER)
+                .tags("class", "TeacherService", "method", "findAll", "exception", "none")
+                .timer();
+        assertNotNull(timer);
+        assertEquals(2, timer.count());
+    }
+
+    @Test
+    void whenServiceMethodThrows_thenExceptionIsTaggedAndRethrown() {
+        // GIVEN: Le dépôt échoue
+        when(teacherRepository.findAll()).thenThrow(new NotFoundException());
+
+        // WHEN / THEN: L'exception remonte inchangée et l'appel est compté avec son exception
+        assertThrows(NotFoundException.class, () -> teacherService.findAll());
+        assertEquals(1, meterRegistry.find(ServiceMetricsAspect.SERVICE_TIMER)
+                .tags("method", "findAll", "exception", "NotFoundException")
+                .timer()
+                .count());
+    }
+}
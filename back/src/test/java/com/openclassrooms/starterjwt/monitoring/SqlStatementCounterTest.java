@@ -0,0 +1,94 @@
+package com.openclassrooms.starterjwt.monitoring;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlStatementCounterTest {
+
+    private final SqlStatementCounter counter = new SqlStatementCounter();
+
+    private void execute(long elapsedMs) {
+        ExecutionInfo execInfo = new ExecutionInfo();
+        execInfo.setElapsedTime(elapsedMs);
+        counter.afterQuery(execInfo, Collections.emptyList());
+    }
+
+    @Test
+    void whenStatementsRunInsideAScope_thenTheyAreCountedWithTheirDuration() {
+        // GIVEN: Une requête avant l'ouverture du scope, qui ne doit pas être comptée
+        execute(100);
+
+        try (SqlStatementCounter.Scope scope = SqlStatementCounter.open()) {
+            // WHEN: Deux requêtes dans le scope
+            execute(3);
+            execute(4);
+
+            // THEN: Deux requêtes pour 7 ms
+            assertEquals(2, scope.getStatements());
+            assertEquals(7, scope.getElapsedMs());
+        }
+    }
+
+    @Test
+    void whenScopesAreNested_thenOuterScopeCountsEverything() {
+        try (SqlStatementCounter.Scope outer = SqlStatementCounter.open()) {
+            execute(1);
+            try (SqlStatementCounter.Scope inner = SqlStatementCounter.open()) {
+                execute(1);
+                assertEquals(1, inner.getStatements());
+            }
+            // Le scope interne est fermé et ne compte plus
+            execute(1);
+
+            assertEquals(3, outer.getStatements());
+        }
+    }
+
+    @Test
+    void whenScopeIsClosedTwice_thenNothingFails() {
+        SqlStatementCounter.Scope scope = SqlStatementCounter.open();
+        scope.close();
+        scope.close();
+        execute(1);
+
+        assertEquals(0, scope.getStatements());
+    }
+
+    @Test
+    void whenWorkIsPropagatedToAnotherThread_thenItIsCountedInTheCallersScope() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            SqlStatementCounter.Scope scope = SqlStatementCounter.open();
+            Runnable task = SqlStatementCounter.propagate(() -> {
+                execute(2);
+                execute(3);
+            });
+            // Le thread appelant a déjà fermé son scope quand le travail s'exécute, comme après un dispatch asynchrone
+            scope.close();
+
+            CompletableFuture.runAsync(task, executor).get(5, TimeUnit.SECONDS);
+            // Le thread de l'exécuteur ne garde pas le scope une fois la tâche terminée
+            CompletableFuture.runAsync(() -> execute(100), executor).get(5, TimeUnit.SECONDS);
+
+            assertEquals(2, scope.getStatements());
+            assertEquals(5, scope.getElapsedMs());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void whenNoScopeIsOpen_thenTaskIsLeftAsIs() {
+        Runnable task = () -> execute(1);
+
+        assertSame(task, SqlStatementCounter.propagate(task));
+    }
+}
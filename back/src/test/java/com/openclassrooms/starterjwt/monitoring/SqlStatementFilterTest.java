@@ -0,0 +1,94 @@
+package com.openclassrooms.starterjwt.monitoring;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.FilterChain;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SqlStatementFilterTest {
+    private static final String URI = "/api/session/{id}";
+    private static final int THRESHOLD = 2;
+
+    private final SqlStatementCounter counter = new SqlStatementCounter();
+    private SimpleMeterRegistry meterRegistry;
+    private SqlStatementFilter filter;
+    private MockHttpServletRequest request;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        filter = new SqlStatementFilter(meterRegistry, THRESHOLD);
+        request = new MockHttpServletRequest("GET", "/api/session/1");
+        request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, URI);
+    }
+
+    // La chaîne simule un contrôleur qui exécute le nombre de requêtes demandé
+    private FilterChain chainExecuting(int statements) {
+        return (req, res) -> {
+            for (int i = 0; i < statements; i++) {
+                counter.afterQuery(new ExecutionInfo(), Collections.emptyList());
+            }
+        };
+    }
+
+    @Test
+    void whenRequestStaysUnderThreshold_thenStatementsAreRecordedWithoutWarning() throws Exception {
+        filter.doFilter(request, new MockHttpServletResponse(), chainExecuting(THRESHOLD));
+
+        assertEquals(THRESHOLD, meterRegistry.get(SqlStatementFilter.STATEMENTS_METRIC).tag("uri", URI).summary().totalAmount());
+        assertNull(meterRegistry.find(SqlStatementFilter.THRESHOLD_EXCEEDED_METRIC).counter());
+    }
+
+    @Test
+    void whenRequestExceedsThreshold_thenItIsCounted() throws Exception {
+        filter.doFilter(request, new MockHttpServletResponse(), chainExecuting(THRESHOLD + 1));
+
+        Counter exceeded = meterRegistry.get(SqlStatementFilter.THRESHOLD_EXCEEDED_METRIC).tag("uri", URI).counter();
+        assertEquals(1, exceeded.count());
+    }
+
+    @Test
+    void whenHandlerIsUnknown_thenUriTagIsBounded() throws Exception {
+        MockHttpServletRequest unmapped = new MockHttpServletRequest("GET", "/nowhere");
+
+        filter.doFilter(unmapped, new MockHttpServletResponse(), chainExecuting(0));
+
+        assertEquals(1, meterRegistry.get(SqlStatementFilter.STATEMENTS_METRIC).tag("uri", "UNKNOWN").summary().count());
+    }
+
+    // Réponse asynchrone : les requêtes exécutées sur un autre thread après la chaîne de filtres sont comptées à la fin
+    @Test
+    void whenResponseCompletesAsynchronously_thenStatementsOfOtherThreadsAreRecordedOnCompletion() throws Exception {
+        request.setAsyncSupported(true);
+        Runnable[] streaming = new Runnable[1];
+        FilterChain asyncChain = (req, res) -> {
+            counter.afterQuery(new ExecutionInfo(), Collections.emptyList());
+            req.startAsync();
+            streaming[0] = SqlStatementCounter.propagate(() -> {
+                for (int i = 0; i < THRESHOLD; i++) {
+                    counter.afterQuery(new ExecutionInfo(), Collections.emptyList());
+                }
+            });
+        };
+
+        filter.doFilter(request, new MockHttpServletResponse(), asyncChain);
+        assertNull(meterRegistry.find(SqlStatementFilter.STATEMENTS_METRIC).summary(), "Rien ne devrait être enregistré avant la fin de la réponse.");
+
+        Thread worker = new Thread(streaming[0]);
+        worker.start();
+        worker.join();
+        request.getAsyncContext().complete();
+
+        assertEquals(THRESHOLD + 1, meterRegistry.get(SqlStatementFilter.STATEMENTS_METRIC).tag("uri", URI).summary().totalAmount());
+        assertEquals(1, meterRegistry.get(SqlStatementFilter.THRESHOLD_EXCEEDED_METRIC).tag("uri", URI).counter().count());
+    }
+}
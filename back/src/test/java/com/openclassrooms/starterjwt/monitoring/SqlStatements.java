@@ -0,0 +1,20 @@
+package com.openclassrooms.starterjwt.monitoring;
+
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// Permet aux tests d'intégration de figer le nombre de requêtes SQL d'un endpoint, par exemple autour d'un mockMvc.perform
+public final class SqlStatements {
+
+    private SqlStatements() {
+    }
+
+    public static <T> T assertStatementCount(int expected, Callable<T> action) throws Exception {
+        try (SqlStatementCounter.Scope scope = SqlStatementCounter.open()) {
+            T result = action.call();
+            assertEquals(expected, scope.getStatements(), "Nombre de requêtes SQL inattendu.");
+            return result;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.openclassrooms.starterjwt.security.crypto;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BCryptStrengthCalibratorTest {
+
+    // Chaque coût supplémentaire double le temps de hachage : 60 ms au coût 10 donne 240 ms au coût 12
+    @Test
+    void whenHostIsFast_thenStrengthIsRaisedUntilTarget() {
+        assertEquals(12, BCryptStrengthCalibrator.strengthFor(60, 250));
+    }
+
+    // Sur une machine lente, on ne descend jamais sous le coût minimal
+    @Test
+    void whenHostIsSlow_thenMinimumStrengthIsKept() {
+        assertEquals(BCryptStrengthCalibrator.MIN_STRENGTH, BCryptStrengthCalibrator.strengthFor(300, 250));
+    }
+
+    // Le coût est plafonné pour qu'une cible trop ambitieuse ne bloque pas les connexions
+    @Test
+    void whenTargetIsHuge_thenStrengthIsCapped() {
+        assertEquals(BCryptStrengthCalibrator.MAX_STRENGTH, BCryptStrengthCalibrator.strengthFor(1, 1_000_000));
+    }
+
+    // La calibration réelle mesure la machine et renvoie au moins le coût minimal
+    @Test
+    void whenCalibratingWithTinyTarget_thenMinimumStrengthIsReturned() {
+        assertEquals(BCryptStrengthCalibrator.MIN_STRENGTH, BCryptStrengthCalibrator.calibrate(1));
+    }
+}
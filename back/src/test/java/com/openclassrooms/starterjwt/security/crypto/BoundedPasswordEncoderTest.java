@@ -0,0 +1,184 @@
+package com.openclassrooms.starterjwt.security.crypto;
+
+import com.openclassrooms.starterjwt.exception.ServiceUnavailableException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BoundedPasswordEncoderTest {
+
+    @Mock
+    private PasswordEncoder delegate;
+
+    // Un seul thread de hachage et une file d'une place pour saturer facilement l'exécuteur
+    private BoundedPasswordEncoder passwordEncoder;
+
+    @BeforeEach
+    void setUp() {
+        passwordEncoder = new BoundedPasswordEncoder(delegate, 1, 1, 5000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordEncoder.close();
+    }
+
+    // Le hachage et la vérification sont délégués à l'encodeur d'origine
+    @Test
+    void whenEncodingAndMatching_thenDelegateIsUsed() {
+        // GIVEN
+        when(delegate.encode("test!1234")).thenReturn("hash");
+        when(delegate.matches("test!1234", "hash")).thenReturn(true);
+
+        // WHEN / THEN
+        assertEquals("hash", passwordEncoder.encode("test!1234"));
+        assertTrue(passwordEncoder.matches("test!1234", "hash"));
+    }
+
+    // Le hachage ne se fait pas sur le thread de la requête
+    @Test
+    void whenEncoding_thenWorkRunsOnDedicatedThread() {
+        // GIVEN
+        String requestThread = Thread.currentThread().getName();
+        when(delegate.encode("test!1234")).thenAnswer(invocation -> Thread.currentThread().getName());
+
+        // WHEN
+        String hashingThread = passwordEncoder.encode("test!1234");
+
+        // THEN
+        assertNotEquals(requestThread, hashingThread);
+        assertTrue(hashingThread.startsWith("password-hash-"));
+    }
+
+    // Quand le thread et la file sont occupés, l'appel suivant est rejeté immédiatement avec une 503
+    @Test
+    void whenExecutorIsSaturated_thenRejectsWithServiceUnavailable() throws Exception {
+        // GIVEN : le premier hachage bloque le seul thread, le second occupe la file
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.encode("slow")).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return "hash";
+        });
+        CompletableFuture<String> running = CompletableFuture.supplyAsync(() -> passwordEncoder.encode("slow"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        CompletableFuture<String> queued = CompletableFuture.supplyAsync(() -> passwordEncoder.encode("slow"));
+        while (!queued.isDone() && queueIsEmpty()) {
+            Thread.onSpinWait();
+        }
+
+        // WHEN / THEN
+        long start = System.nanoTime();
+        assertThrows(ServiceUnavailableException.class, () -> passwordEncoder.matches("test!1234", "hash"));
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 1000, "Le rejet devrait être immédiat.");
+
+        release.countDown();
+        assertEquals("hash", running.get(5, TimeUnit.SECONDS));
+        assertEquals("hash", queued.get(5, TimeUnit.SECONDS));
+    }
+
+    // La mise à niveau d'un hash ne demande pas de calcul, elle reste sur le thread appelant
+    @Test
+    void whenCheckingUpgradeEncoding_thenDelegateAnswers() {
+        when(delegate.upgradeEncoding("hash")).thenReturn(true);
+
+        assertTrue(passwordEncoder.upgradeEncoding("hash"));
+    }
+
+    // Sans nombre de threads configuré, le pool suit le nombre de cœurs disponibles
+    @Test
+    void whenNoThreadCountIsConfigured_thenPoolIsSizedFromAvailableCores() {
+        try (BoundedPasswordEncoder sized = new BoundedPasswordEncoder(delegate, 0, 1, 5000)) {
+            ThreadPoolExecutor executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(sized, "executor");
+
+            assertEquals(Runtime.getRuntime().availableProcessors(), executor.getMaximumPoolSize());
+        }
+    }
+
+    // Un hachage trop long est abandonné et l'appelant reçoit une 503
+    @Test
+    void whenHashingExceedsTimeout_thenThrowsServiceUnavailable() {
+        // GIVEN
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.encode("slow")).thenAnswer(invocation -> {
+            release.await();
+            return "hash";
+        });
+
+        try (BoundedPasswordEncoder impatient = new BoundedPasswordEncoder(delegate, 1, 1, 50)) {
+            // WHEN / THEN
+            assertThrows(ServiceUnavailableException.class, () -> impatient.encode("slow"));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    // Un thread appelant interrompu pendant l'attente reçoit une 503 et garde son statut d'interruption
+    @Test
+    void whenCallerIsInterrupted_thenThrowsServiceUnavailableAndKeepsInterruptFlag() {
+        // GIVEN : le hachage ne se termine pas et l'attente du résultat est interrompue aussitôt
+        CountDownLatch release = new CountDownLatch(1);
+        lenient().when(delegate.encode("slow")).thenAnswer(invocation -> {
+            release.await();
+            return "hash";
+        });
+        Thread.currentThread().interrupt();
+
+        try {
+            // WHEN / THEN
+            assertThrows(ServiceUnavailableException.class, () -> passwordEncoder.encode("slow"));
+            assertTrue(Thread.interrupted());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    // Une erreur de l'encodeur d'origine remonte telle quelle à l'appelant
+    @Test
+    void whenDelegateThrowsRuntimeException_thenSameExceptionIsRethrown() {
+        when(delegate.encode("test!1234")).thenThrow(new IllegalArgumentException("bad password"));
+
+        IllegalArgumentException thrown = assertThrows(IllegalArgumentException.class, () -> passwordEncoder.encode("test!1234"));
+        assertEquals("bad password", thrown.getMessage());
+    }
+
+    // Une exception vérifiée de l'encodeur d'origine est enveloppée
+    @Test
+    void whenDelegateThrowsCheckedException_thenItIsWrapped() {
+        Exception cause = new Exception("checked");
+        when(delegate.encode("test!1234")).thenAnswer(invocation -> {
+            throw cause;
+        });
+
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, () -> passwordEncoder.encode("test!1234"));
+        assertSame(cause, thrown.getCause());
+    }
+
+    // Après l'arrêt de l'application, plus aucun hachage n'est accepté
+    @Test
+    void whenEncoderIsClosed_thenRejectsWithServiceUnavailable() {
+        passwordEncoder.close();
+
+        assertThrows(ServiceUnavailableException.class, () -> passwordEncoder.matches("test!1234", "hash"));
+        verifyNoInteractions(delegate);
+    }
+
+    private boolean queueIsEmpty() {
+        return ((ThreadPoolExecutor) ReflectionTestUtils.getField(passwordEncoder, "executor")).getQueue().isEmpty();
+    }
+}
@@ -1,7 +1,7 @@
 package com.openclassrooms.starterjwt.security.jwt;
 
 import com.openclassrooms.starterjwt.security.jwt.AuthTokenFilter;
-import com.openclassrooms.starterjwt.security.jwt.JwtUtils;
+import com.openclassrooms.starterjwt.security.services.UserDetailsImpl;
 import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -12,7 +12,10 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import javax.servlet.FilterChain;
 import javax.servlet.ServletException;
@@ -21,13 +24,15 @@ import javax.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class AuthTokenFilterTest {
 
     @Mock
-    private JwtUtils jwtUtils;
+    private VerifiedTokenCache verifiedTokenCache;
 
     @Mock
     private UserDetailsServiceImpl userDetailsService;
@@ -49,22 +54,27 @@ class AuthTokenFilterTest {
     private final String invalidToken = "Bearer invalidToken123";
     private final String username = "testUser";
 
+    @BeforeEach
+    void setUp() {
+        // Les autres tests laissent une authentification dans le contexte du thread
+        SecurityContextHolder.clearContext();
+    }
 
     @Test
         // Si le token est valide, l'utilisateur doit être authentifié correctement
     void whenTokenIsValid_thenAuthenticateUser() throws ServletException, IOException {
         // GIVEN
         when(request.getHeader("Authorization")).thenReturn(validToken);
-        when(jwtUtils.validateJwtToken(validToken.substring(7))).thenReturn(true);
-        when(jwtUtils.getUserNameFromJwtToken(validToken.substring(7))).thenReturn(username);
+        when(verifiedTokenCache.parseJwtToken(validToken.substring(7))).thenReturn(JwtClaims.builder().subject(username).build());
         UserDetails userDetails = mock(UserDetails.class);
-        when(userDetailsService.loadUserByUsername(username)).thenReturn(userDetails);
+        when(userDetailsService.loadPrincipal(username)).thenReturn(userDetails);
 
         // WHEN
         authTokenFilter.doFilterInternal(request, response, filterChain);
 
         // THEN
-        verify(userDetailsService).loadUserByUsername(username);
+        verify(userDetailsService).loadPrincipal(username);
+        verify(verifiedTokenCache, times(1)).parseJwtToken(validToken.substring(7)); // Un seul décodage du token par requête
         verify(filterChain).doFilter(request, response);
     }
 
@@ -73,14 +83,14 @@ class AuthTokenFilterTest {
     void whenTokenIsInvalid_thenDoNotAuthenticate() throws ServletException, IOException {
         // GIVEN
         when(request.getHeader("Authorization")).thenReturn(invalidToken);
-        when(jwtUtils.validateJwtToken(invalidToken.substring(7))).thenReturn(false);
+        when(verifiedTokenCache.parseJwtToken(invalidToken.substring(7))).thenReturn(null);
 
         // WHEN
         authTokenFilter.doFilterInternal(request, response, filterChain);
 
         // THEN
         verify(filterChain).doFilter(request, response);
-        verify(userDetailsService, never()).loadUserByUsername(anyString());
+        verify(userDetailsService, never()).loadPrincipal(anyString());
     }
 
     @Test
@@ -94,7 +104,7 @@ class AuthTokenFilterTest {
 
         // THEN
         verify(filterChain).doFilter(request, response);
-        verify(userDetailsService, never()).loadUserByUsername(anyString());
+        verify(userDetailsService, never()).loadPrincipal(anyString());
     }
 
     @Test
@@ -102,7 +112,7 @@ class AuthTokenFilterTest {
     void whenTokenThrowsException_thenProceed() throws ServletException, IOException {
         // GIVEN
         when(request.getHeader("Authorization")).thenReturn(validToken);
-        when(jwtUtils.validateJwtToken(validToken.substring(7))).thenThrow(new RuntimeException("Test exception"));
+        when(verifiedTokenCache.parseJwtToken(validToken.substring(7))).thenThrow(new RuntimeException("Test exception"));
 
         // WHEN
         authTokenFilter.doFilterInternal(request, response, filterChain);
@@ -111,4 +121,53 @@ class AuthTokenFilterTest {
         verify(filterChain).doFilter(request, response);
 
     }
+
+    @Test
+        // Par défaut le principal est rechargé, un utilisateur supprimé n'est plus authentifié même avec un token encore valide
+    void whenUserIsDeletedAndStatelessPrincipalIsDisabled_thenDoNotAuthenticate() throws ServletException, IOException {
+        // GIVEN
+        when(request.getHeader("Authorization")).thenReturn(validToken);
+        when(verifiedTokenCache.parseJwtToken(validToken.substring(7))).thenReturn(JwtClaims.builder()
+                .subject(username)
+                .userId(1L)
+                .build());
+        when(userDetailsService.loadPrincipal(username)).thenThrow(new UsernameNotFoundException(username));
+
+        // WHEN
+        authTokenFilter.doFilterInternal(request, response, filterChain);
+
+        // THEN
+        assertNull(SecurityContextHolder.getContext().getAuthentication());
+        verify(filterChain).doFilter(request, response);
+    }
+
+    @Test
+        // En mode sans état, le principal est construit depuis les claims du token, sans chargement de l'utilisateur
+    void whenStatelessPrincipalIsEnabled_thenUserIsNotLoaded() throws ServletException, IOException {
+        // GIVEN
+        ReflectionTestUtils.setField(authTokenFilter, "statelessPrincipal", true);
+        when(request.getHeader("Authorization")).thenReturn(validToken);
+        when(verifiedTokenCache.parseJwtToken(validToken.substring(7))).thenReturn(JwtClaims.builder()
+                .subject(username)
+                .userId(1L)
+                .firstName("Stéphane")
+                .lastName("Gmt")
+                .admin(true)
+                .build());
+
+        try {
+            // WHEN
+            authTokenFilter.doFilterInternal(request, response, filterChain);
+
+            // THEN
+            UserDetailsImpl principal = (UserDetailsImpl) SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+            assertEquals(Long.valueOf(1L), principal.getId());
+            assertEquals(username, principal.getUsername());
+            assertEquals(Boolean.TRUE, principal.getAdmin());
+            verify(userDetailsService, never()).loadPrincipal(anyString());
+            verify(filterChain).doFilter(request, response);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
 }
@@ -151,11 +151,68 @@ class JwtUtilsTest {
         assertTrue(jwtUtils.validateJwtToken(emptySubjectToken), "Actuellement, un token avec un sujet vide est considéré comme valide.");
     }
 
+    @Test
+    void parseJwtToken_ValidToken_ReturnsClaimsInOnePass() {
+        // Génération d'un token portant l'id et le rôle de l'utilisateur
+        Date expiration = new Date((System.currentTimeMillis() + jwtExpirationMs) / 1000 * 1000);
+        String token = Jwts.builder()
+                .setSubject(testUsername)
+                .claim(JwtUtils.USER_ID_CLAIM, 42)
+                .claim(JwtUtils.ADMIN_CLAIM, true)
+                .setExpiration(expiration)
+                .signWith(SignatureAlgorithm.HS512, jwtSecret)
+                .compact();
 
+        JwtClaims claims = jwtUtils.parseJwtToken(token);
 
+        // Toutes les informations sont lues depuis le même décodage
+        assertNotNull(claims);
+        assertEquals(testUsername, claims.getSubject());
+        assertEquals(expiration, claims.getExpiration());
+        assertEquals(Long.valueOf(42L), claims.getUserId());
+        assertEquals(Boolean.TRUE, claims.getAdmin());
+    }
+
+    @Test
+    void parseJwtToken_TokenWithoutUserClaims_ReturnsSubjectOnly() {
+        JwtClaims claims = jwtUtils.parseJwtToken(createValidToken(testUsername));
+
+        assertNotNull(claims);
+        assertEquals(testUsername, claims.getSubject());
+        assertNull(claims.getUserId());
+        assertNull(claims.getAdmin());
+    }
 
+    @Test
+    void parseJwtToken_InvalidSignature_ReturnsNull() {
+        String token = Jwts.builder()
+                .setSubject(testUsername)
+                .setExpiration(new Date(System.currentTimeMillis() + jwtExpirationMs))
+                .signWith(SignatureAlgorithm.HS512, "wrongSecret")
+                .compact();
 
+        assertNull(jwtUtils.parseJwtToken(token), "Un token avec une signature invalide ne devrait pas être décodé.");
+    }
 
+    @Test
+    void generateJwtToken_CarriesUserClaims() {
+        // Le token généré porte tout ce qu'il faut pour reconstruire le principal sans base de données
+        UserDetailsImpl userPrincipal = UserDetailsImpl.builder()
+                .id(7L)
+                .username(testUsername)
+                .firstName("Stéphane")
+                .lastName("Gmt")
+                .admin(true)
+                .build();
+        when(authentication.getPrincipal()).thenReturn(userPrincipal);
 
+        JwtClaims claims = jwtUtils.parseJwtToken(jwtUtils.generateJwtToken(authentication));
 
+        assertNotNull(claims);
+        assertEquals(testUsername, claims.getSubject());
+        assertEquals(Long.valueOf(7L), claims.getUserId());
+        assertEquals("Stéphane", claims.getFirstName());
+        assertEquals("Gmt", claims.getLastName());
+        assertEquals(Boolean.TRUE, claims.getAdmin());
+    }
 }
@@ -0,0 +1,88 @@
+package com.openclassrooms.starterjwt.security.jwt;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class VerifiedTokenCacheTest {
+
+    @Mock
+    private JwtUtils jwtUtils;
+
+    // Horloge manipulable pour faire avancer le temps du cache sans attendre
+    private final AtomicLong nanos = new AtomicLong();
+
+    private VerifiedTokenCache verifiedTokenCache;
+
+    private final String token = "header.payload.signature";
+
+    @BeforeEach
+    void setUp() {
+        verifiedTokenCache = new VerifiedTokenCache(jwtUtils, 100, nanos::get);
+    }
+
+    private JwtClaims claimsExpiringIn(long millis) {
+        return JwtClaims.builder()
+                .subject("yoga@studio.com")
+                .expiration(new Date(System.currentTimeMillis() + millis))
+                .build();
+    }
+
+    // Un token déjà vérifié est servi par le cache, sans nouvelle vérification de signature
+    @Test
+    void whenSameTokenIsPresentedTwice_thenSignatureIsVerifiedOnce() {
+        // GIVEN
+        JwtClaims claims = claimsExpiringIn(TimeUnit.HOURS.toMillis(1));
+        when(jwtUtils.parseJwtToken(token)).thenReturn(claims);
+
+        // WHEN
+        JwtClaims first = verifiedTokenCache.parseJwtToken(token);
+        JwtClaims second = verifiedTokenCache.parseJwtToken(token);
+
+        // THEN
+        assertSame(claims, first);
+        assertSame(claims, second);
+        verify(jwtUtils, times(1)).parseJwtToken(token);
+        assertEquals(1, verifiedTokenCache.getCache().stats().hitCount());
+    }
+
+    // Une entrée du cache ne survit jamais à l'expiration du token
+    @Test
+    void whenTokenExpires_thenCachedEntryIsDropped() {
+        // GIVEN
+        when(jwtUtils.parseJwtToken(token)).thenReturn(claimsExpiringIn(TimeUnit.MINUTES.toMillis(1)), (JwtClaims) null);
+        verifiedTokenCache.parseJwtToken(token);
+
+        // WHEN : deux minutes plus tard, le token a expiré
+        nanos.addAndGet(TimeUnit.MINUTES.toNanos(2));
+
+        // THEN : le token est de nouveau vérifié, et refusé
+        assertNull(verifiedTokenCache.parseJwtToken(token));
+        verify(jwtUtils, times(2)).parseJwtToken(token);
+    }
+
+    // Un token invalide n'est jamais mis en cache
+    @Test
+    void whenTokenIsInvalid_thenItIsNotCached() {
+        // GIVEN
+        when(jwtUtils.parseJwtToken(token)).thenReturn(null);
+
+        // WHEN
+        assertNull(verifiedTokenCache.parseJwtToken(token));
+        assertNull(verifiedTokenCache.parseJwtToken(token));
+
+        // THEN
+        verify(jwtUtils, times(2)).parseJwtToken(token);
+        assertEquals(0, verifiedTokenCache.getCache().estimatedSize());
+    }
+}
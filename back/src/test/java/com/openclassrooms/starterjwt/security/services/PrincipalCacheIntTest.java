@@ -0,0 +1,91 @@
+package com.openclassrooms.starterjwt.security.services;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.services.UserService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// On vérifie qu'une rafale de requêtes authentifiées ne coûte qu'un seul aller-retour en base pour charger le principal
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class PrincipalCacheIntTest {
+
+    @Autowired
+    private UserDetailsServiceImpl userDetailsService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private CacheManager cacheManager;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+    private User user;
+
+    @BeforeEach
+    public void setup() {
+        user = userRepository.save(new User(UUID.randomUUID().toString().substring(0, 8) + "@cache.com", "Cache", "Principal", "password", false));
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void whenLoadingSamePrincipalRepeatedly_thenDatabaseIsQueriedOnce() {
+        CacheStats before = principalCache().stats();
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals(user.getEmail(), userDetailsService.loadPrincipal(user.getEmail()).getUsername());
+        }
+
+        // Un seul SELECT, les 9 appels suivants sont servis par le cache
+        assertEquals(1, statistics.getPrepareStatementCount());
+        CacheStats delta = principalCache().stats().minus(before);
+        assertEquals(1, delta.missCount());
+        assertEquals(9, delta.hitCount());
+    }
+
+    @Test
+    void whenLoggingIn_thenStoredPasswordIsReadEachTime() {
+        userDetailsService.loadPrincipal(user.getEmail());
+        user.setPassword("changed");
+        userRepository.save(user);
+        statistics.clear();
+
+        // La connexion ignore le cache et voit le nouveau mot de passe
+        for (int i = 0; i < 3; i++) {
+            assertEquals("changed", userDetailsService.loadUserByUsername(user.getEmail()).getPassword());
+        }
+
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void whenUserIsDeleted_thenCachedPrincipalIsEvicted() {
+        userDetailsService.loadPrincipal(user.getEmail());
+
+        userService.delete(user.getId());
+
+        assertNull(principalCache().getIfPresent(user.getEmail()), "Le principal supprimé ne devrait plus être en cache.");
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadPrincipal(user.getEmail()));
+    }
+
+    private com.github.benmanes.caffeine.cache.Cache<Object, Object> principalCache() {
+        return ((CaffeineCache) cacheManager.getCache(UserDetailsServiceImpl.PRINCIPAL_CACHE)).getNativeCache();
+    }
+}
@@ -38,6 +38,7 @@ class UserDetailsServiceImplTest {
         testUser.setPassword(USER_PASSWORD);
         testUser.setFirstName("Stéphane");
         testUser.setLastName("Gmt");
+        testUser.setAdmin(true);
     }
 
 
@@ -81,6 +82,7 @@ class UserDetailsServiceImplTest {
         assertNotNull(userDetails, "Devrait retourner des détails d'utilisateur non nuls pour un utilisateur existant.");
         assertEquals(USER_EMAIL, userDetails.getUsername(), "L'email de l'utilisateur devrait être utilisé comme nom d'utilisateur.");
         assertEquals(USER_PASSWORD, userDetails.getPassword(), "Le mot de passe des détails de l'utilisateur devrait correspondre.");
+        assertEquals(Boolean.TRUE, ((UserDetailsImpl) userDetails).getAdmin(), "Le rôle admin devrait être chargé avec l'utilisateur.");
     }
 
 
@@ -95,5 +97,33 @@ class UserDetailsServiceImplTest {
                 () -> userDetailsService.loadUserByUsername("unknown@example.com"),
                 "Devrait lancer UsernameNotFoundException pour un email non trouvé.");
     }
-}
 
+
+    // On teste le chargement du principal utilisé par le filtre JWT, avec les mêmes informations que la connexion
+    @Test
+    void whenLoadingPrincipal_thenReturnsUserDetails() {
+        when(userRepository.findByEmail(USER_EMAIL)).thenReturn(Optional.of(testUser));
+
+        UserDetails userDetails = userDetailsService.loadPrincipal(USER_EMAIL);
+
+        assertEquals(USER_EMAIL, userDetails.getUsername());
+        assertEquals(USER_PASSWORD, userDetails.getPassword());
+        assertThrows(UsernameNotFoundException.class, () -> userDetailsService.loadPrincipal("unknown@example.com"));
+    }
+
+
+    // On teste la mise à jour du hash stocké après une connexion réussie avec un hash obsolète
+    @Test
+    void whenUpdatingPassword_thenNewHashIsSavedAndReturned() {
+        when(userRepository.findByEmail(USER_EMAIL)).thenReturn(Optional.of(testUser));
+        when(userRepository.save(testUser)).thenReturn(testUser);
+        UserDetails current = userDetailsService.loadUserByUsername(USER_EMAIL);
+
+        // Remplace l'ancien hash par le nouveau
+        UserDetails updated = userDetailsService.updatePassword(current, "{bcrypt}newHash");
+
+        assertEquals("{bcrypt}newHash", testUser.getPassword(), "Le nouveau hash devrait être enregistré.");
+        assertEquals("{bcrypt}newHash", updated.getPassword(), "Le principal retourné devrait porter le nouveau hash.");
+        assertEquals(USER_EMAIL, updated.getUsername());
+    }
+}
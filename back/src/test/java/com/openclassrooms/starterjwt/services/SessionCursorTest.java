@@ -0,0 +1,36 @@
+package com.openclassrooms.starterjwt.services;
+
+import com.openclassrooms.starterjwt.exception.BadRequestException;
+import com.openclassrooms.starterjwt.models.Session;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SessionCursorTest {
+
+    // On vérifie qu'un curseur encodé puis décodé redonne la même position
+    @Test
+    void whenEncodingThenDecoding_thenPositionIsPreserved() {
+        // GIVEN: Une session avec une date et un ID
+        Session session = new Session();
+        session.setId(42L);
+        session.setDate(new Date(1710028800000L));
+
+        // WHEN: Aller-retour par le jeton opaque
+        SessionCursor cursor = SessionCursor.decode(SessionCursor.of(session).encode());
+
+        // THEN: La date et l'ID sont conservés
+        assertEquals(42L, cursor.getId());
+        assertEquals(session.getDate(), cursor.getDate());
+    }
+
+    // On vérifie qu'un jeton illisible donne une erreur 400 et pas une erreur serveur
+    @Test
+    void whenDecodingGarbage_thenThrowsBadRequestException() {
+        assertThrows(BadRequestException.class, () -> SessionCursor.decode("pas un curseur !"));
+        assertThrows(BadRequestException.class, () -> SessionCursor.decode("MTIz"));
+        assertThrows(BadRequestException.class, () -> SessionCursor.decode("YWJjOmRlZg"));
+    }
+}
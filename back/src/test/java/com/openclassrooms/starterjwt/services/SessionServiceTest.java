@@ -5,14 +5,21 @@ import com.openclassrooms.starterjwt.exception.NotFoundException;
 import com.openclassrooms.starterjwt.models.Session;
 import com.openclassrooms.starterjwt.models.Teacher;
 import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
 import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.SessionView;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 
+import java.time.LocalDate;
+import java.time.ZoneId;
 import java.util.*;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -32,6 +39,8 @@ class SessionServiceTest {
     private SessionRepository sessionRepository;
     @Mock
     private UserRepository userRepository;
+    @Mock
+    private WaitlistRepository waitlistRepository;
 
 
 
@@ -64,6 +73,19 @@ class SessionServiceTest {
     }
 
 
+    // On teste qu'une session créée avec plus de participants que de places est refusée
+    @Test
+    void whenCreatingASessionWithMoreParticipantsThanCapacity_thenThrowsBadRequestException() {
+        // Configuration
+        Session overbooked = createTestSession().setCapacity(1)
+                .setUsers(new ArrayList<>(Arrays.asList(new User().setId(3L), new User().setId(4L))));
+
+        // Action & Vérification
+        assertThrows(BadRequestException.class, () -> sessionService.create(overbooked));
+        verify(sessionRepository, never()).save(any(Session.class));
+    }
+
+
     // On teste si le service appelle correctement la méthode deleteById du repository pour supprimer une session
     @Test
     void whenDeletingASession_thenTheRepositoryDeleteMethodIsCalled() {
@@ -71,22 +93,106 @@ class SessionServiceTest {
         sessionService.delete(VALID_SESSION_ID);
 
         // Vérification
+        verify(waitlistRepository).removeSession(VALID_SESSION_ID);
         verify(sessionRepository).deleteById(VALID_SESSION_ID);
     }
 
 
-    // On teste si le service peut récupérer et retourner toutes les sessions existante
+    // On teste que la première page est demandée sans curseur et limitée à la taille voulue
+    @Test
+    void whenRetrievingFirstPage_thenRepositoryIsQueriedWithLimit() {
+        // Configuration
+        List<SessionView> expectedSessions = Arrays.asList(mock(SessionView.class), mock(SessionView.class));
+        when(sessionRepository.findFirstPage(PageRequest.of(0, 2))).thenReturn(expectedSessions);
+
+        // Action
+        List<SessionView> page = sessionService.findPage(null, 2);
+
+        // Vérification
+        assertEquals(expectedSessions, page, "La première page devrait venir de la requête sans curseur.");
+        verify(sessionRepository, never()).findPageAfter(any(), any(), any());
+    }
+
+
+    // On teste que les pages suivantes reprennent après la date et l'ID du curseur
+    @Test
+    void whenRetrievingPageAfterCursor_thenRepositoryIsQueriedFromCursor() {
+        // Configuration
+        SessionCursor cursor = new SessionCursor(SESSION_DATE, VALID_SESSION_ID);
+        List<SessionView> expectedSessions = Collections.singletonList(mock(SessionView.class));
+        when(sessionRepository.findPageAfter(SESSION_DATE, VALID_SESSION_ID, PageRequest.of(0, 5))).thenReturn(expectedSessions);
+
+        // Action
+        List<SessionView> page = sessionService.findPage(cursor, 5);
+
+        // Vérification
+        assertEquals(expectedSessions, page, "La page devrait commencer après le curseur.");
+        verify(sessionRepository, never()).findFirstPage(any());
+    }
+
+
+    // On teste que l'intervalle inclut le dernier jour : la borne haute est le début du jour suivant
+    @Test
+    void whenRetrievingRange_thenUpperBoundIsStartOfNextDay() {
+        // Configuration
+        Date start = Date.from(LocalDate.of(2024, 3, 1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        Date end = Date.from(LocalDate.of(2024, 4, 1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+        List<SessionView> expectedSessions = Collections.singletonList(mock(SessionView.class));
+        when(sessionRepository.findViewsBetween(start, end)).thenReturn(expectedSessions);
+
+        // Action
+        List<SessionView> sessions = sessionService.findBetween(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31), null);
+
+        // Vérification
+        assertEquals(expectedSessions, sessions, "Le mois entier devrait être lu, 31 mars compris.");
+        verify(sessionRepository, never()).findViewsBetweenForTeacher(any(), any(), any());
+    }
+
+
+    // On teste que le filtre sur le professeur passe par sa propre requête
+    @Test
+    void whenRetrievingRangeForTeacher_thenTeacherQueryIsUsed() {
+        // Configuration
+        List<SessionView> expectedSessions = Collections.singletonList(mock(SessionView.class));
+        when(sessionRepository.findViewsBetweenForTeacher(any(Date.class), any(Date.class), eq(3L))).thenReturn(expectedSessions);
+
+        // Action
+        List<SessionView> sessions = sessionService.findBetween(LocalDate.of(2024, 3, 4), LocalDate.of(2024, 3, 10), 3L);
+
+        // Vérification
+        assertEquals(expectedSessions, sessions, "Seules les sessions du professeur devraient être lues.");
+        verify(sessionRepository, never()).findViewsBetween(any(), any());
+    }
+
+
+    // On teste que la liste complète passe par la projection en lecture seule, sans charger d'entité
     @Test
-    void whenRetrievingAllSessions_thenAllSessionsAreReturned() {
+    void whenRetrievingAllViews_thenProjectionQueryIsUsed() {
         // Configuration
-        List<Session> expectedSessions = Arrays.asList(createTestSession(), createTestSession());
-        when(sessionRepository.findAll()).thenReturn(expectedSessions);
+        List<SessionView> expectedSessions = Arrays.asList(mock(SessionView.class), mock(SessionView.class));
+        when(sessionRepository.findAllViews()).thenReturn(expectedSessions);
 
         // Action
-        List<Session> allSessions = sessionService.findAll();
+        List<SessionView> views = sessionService.findAllViews();
 
         // Vérification
-        assertEquals(expectedSessions.size(), allSessions.size(), "Le nombre de sessions retournées devrait correspondre.");
+        assertEquals(expectedSessions, views);
+        verify(sessionRepository, never()).findAll();
+    }
+
+
+    // On teste la recherche d'une session par ID via la projection, et le null quand elle n'existe pas
+    @Test
+    void whenRetrievingViewById_thenProjectionOrNullIsReturned() {
+        // Configuration
+        SessionView view = mock(SessionView.class);
+        when(sessionRepository.findViewById(VALID_SESSION_ID)).thenReturn(Optional.of(view));
+        when(sessionRepository.findViewById(99L)).thenReturn(Optional.empty());
+
+        // Action & Vérification
+        assertSame(view, sessionService.getViewById(VALID_SESSION_ID));
+        assertNull(sessionService.getViewById(99L));
+        verify(sessionRepository, never()).findById(any());
     }
 
 
@@ -106,43 +212,153 @@ class SessionServiceTest {
     }
 
 
-    // On teste si une session peut être mise à jour correctement
+    // On teste si une session peut être mise à jour correctement, sans toucher aux participants ni au compteur de places
     @Test
     void whenUpdatingASession_thenTheSessionIsUpdated() {
         // Configuration
-        Session sessionToUpdate = createTestSession();
-        when(sessionRepository.save(any(Session.class))).thenReturn(sessionToUpdate);
+        List<User> participants = new ArrayList<>(Collections.singletonList(new User().setId(VALID_USER_ID)));
+        Session current = createTestSession().setUsers(participants).setSeatsTaken(1).setCapacity(5);
+        Session sessionToUpdate = createTestSession().setDescription("Nouvelle description").setCapacity(5)
+                .setUsers(new ArrayList<>(Arrays.asList(new User().setId(3L), new User().setId(4L)))).setSeatsTaken(0);
+        when(sessionRepository.findByIdForUpdate(VALID_SESSION_ID)).thenReturn(Optional.of(current));
 
         // Action
         Session updatedSession = sessionService.update(VALID_SESSION_ID, sessionToUpdate);
 
         // Vérification
-        assertNotNull(updatedSession, "La session mise à jour ne devrait pas être null.");
-        assertEquals(SESSION_DESCRIPTION, updatedSession.getDescription(), "La description de la session devrait correspondre.");
+        assertSame(current, updatedSession, "La session verrouillée devrait être modifiée sur place.");
+        assertEquals("Nouvelle description", updatedSession.getDescription(), "La description de la session devrait correspondre.");
+        assertEquals(1, updatedSession.getSeatsTaken(), "Le compteur de places ne devrait pas venir de la requête.");
+        assertSame(participants, updatedSession.getUsers(), "Les participants ne devraient pas venir de la requête.");
+        verify(sessionRepository, never()).save(any(Session.class));
+    }
+
+
+    // On teste qu'une session inconnue ne peut pas être mise à jour
+    @Test
+    void whenUpdatingUnknownSession_thenThrowsNotFoundException() {
+        // Configuration
+        when(sessionRepository.findByIdForUpdate(VALID_SESSION_ID)).thenReturn(Optional.empty());
+
+        // Action & Vérification
+        assertThrows(NotFoundException.class, () -> sessionService.update(VALID_SESSION_ID, createTestSession()));
     }
 
-    // Tester le retrait d'un utilisateur d'une session
+
+    // On teste qu'une capacité inférieure aux places déjà prises est refusée
+    @Test
+    void whenUpdatingCapacityBelowSeatsTaken_thenThrowsBadRequestException() {
+        // Configuration
+        when(sessionRepository.findByIdForUpdate(VALID_SESSION_ID)).thenReturn(Optional.of(createTestSession().setSeatsTaken(3).setCapacity(5)));
+
+        // Action & Vérification
+        assertThrows(BadRequestException.class, () -> sessionService.update(VALID_SESSION_ID, createTestSession().setCapacity(2)));
+        verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
+    }
+
+
+    // On teste qu'une capacité augmentée fait entrer les utilisateurs en attente, dans l'ordre, tant qu'il reste des places
+    @Test
+    void whenRaisingCapacity_thenWaitingUsersArePromoted() {
+        // Configuration
+        WaitlistEntry first = new WaitlistEntry().setId(10L).setSessionId(VALID_SESSION_ID).setUserId(4L);
+        WaitlistEntry second = new WaitlistEntry().setId(11L).setSessionId(VALID_SESSION_ID).setUserId(5L);
+        WaitlistEntry third = new WaitlistEntry().setId(12L).setSessionId(VALID_SESSION_ID).setUserId(6L);
+        when(sessionRepository.findByIdForUpdate(VALID_SESSION_ID)).thenReturn(Optional.of(createTestSession().setSeatsTaken(2).setCapacity(2)));
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(VALID_SESSION_ID))
+                .thenReturn(Optional.of(first))
+                .thenReturn(Optional.of(second))
+                .thenReturn(Optional.of(third));
+
+        // Action
+        Session updated = sessionService.update(VALID_SESSION_ID, createTestSession().setCapacity(4));
+
+        // Vérification : les deux places libérées vont aux deux premiers en attente, le troisième attend toujours
+        verify(sessionRepository).addParticipant(VALID_SESSION_ID, 4L);
+        verify(sessionRepository).addParticipant(VALID_SESSION_ID, 5L);
+        verify(sessionRepository, never()).addParticipant(VALID_SESSION_ID, 6L);
+        verify(waitlistRepository, never()).removeEntry(12L);
+        assertEquals(4, updated.getSeatsTaken());
+    }
+
+    // On teste qu'une mise à jour sans capacité, comme celles du formulaire, garde la capacité et laisse la liste d'attente
+    @Test
+    void whenUpdatingFullSessionWithoutCapacity_thenCapacityIsKeptAndNobodyIsPromoted() {
+        // Configuration
+        Session current = createTestSession().setSeatsTaken(2).setCapacity(2);
+        when(sessionRepository.findByIdForUpdate(VALID_SESSION_ID)).thenReturn(Optional.of(current));
+
+        // Action
+        Session updated = sessionService.update(VALID_SESSION_ID, createTestSession().setDescription("Nouvelle description").setCapacity(null));
+
+        // Vérification
+        assertEquals(Integer.valueOf(2), updated.getCapacity());
+        assertEquals(2, updated.getSeatsTaken());
+        assertEquals("Nouvelle description", updated.getDescription());
+        verify(waitlistRepository, never()).findFirstBySessionIdOrderByIdAsc(anyLong());
+        verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
+    }
+
+    // Tester le retrait d'un utilisateur d'une session : une seule ligne PARTICIPATE est supprimée et la place est rendue
     @Test
     void whenRemovingUserFromSession_thenUserIsRemoved() {
         // Configuration
-        Session session = createTestSession();
-        User user = new User();
-        user.setId(VALID_USER_ID);
-        session.getUsers().add(user);
-        when(sessionRepository.findById(VALID_SESSION_ID)).thenReturn(Optional.of(session));
+        Session session = createTestSession().setSeatsTaken(2).setCapacity(5);
+        when(sessionRepository.findByIdForUpdate(VALID_SESSION_ID)).thenReturn(Optional.of(session));
+        when(sessionRepository.removeParticipant(VALID_SESSION_ID, VALID_USER_ID)).thenReturn(1);
 
         // Action
         assertDoesNotThrow(() -> sessionService.noLongerParticipate(VALID_SESSION_ID, VALID_USER_ID));
 
         // Vérification
-        assertFalse(session.getUsers().contains(user), "L'utilisateur devrait être retiré de la session.");
+        verify(sessionRepository).removeParticipant(VALID_SESSION_ID, VALID_USER_ID);
+        assertEquals(1, session.getSeatsTaken());
+        verify(sessionRepository, never()).save(any(Session.class));
+    }
+
+    // Tester qu'une place libérée revient au premier utilisateur de la liste d'attente
+    @Test
+    void whenRemovingUserFromFullSession_thenFirstWaitingUserIsPromoted() {
+        // Configuration
+        WaitlistEntry first = new WaitlistEntry().setId(10L).setSessionId(VALID_SESSION_ID).setUserId(4L);
+        WaitlistEntry second = new WaitlistEntry().setId(11L).setSessionId(VALID_SESSION_ID).setUserId(5L);
+        Session session = createTestSession().setSeatsTaken(2).setCapacity(2);
+        when(sessionRepository.findByIdForUpdate(VALID_SESSION_ID)).thenReturn(Optional.of(session));
+        when(sessionRepository.removeParticipant(VALID_SESSION_ID, VALID_USER_ID)).thenReturn(1);
+        when(waitlistRepository.findFirstBySessionIdOrderByIdAsc(VALID_SESSION_ID)).thenReturn(Optional.of(first));
+
+        // Action
+        sessionService.noLongerParticipate(VALID_SESSION_ID, VALID_USER_ID);
+
+        // Vérification : la session reste complète
+        assertEquals(2, session.getSeatsTaken());
+        verify(sessionRepository).addParticipant(VALID_SESSION_ID, 4L);
+        verify(sessionRepository, never()).addParticipant(VALID_SESSION_ID, 5L);
+        verify(waitlistRepository, never()).removeEntry(11L);
+    }
+
+    // Tester qu'un utilisateur en liste d'attente peut se désister
+    @Test
+    void whenRemovingWaitingUser_thenWaitlistEntryIsRemoved() {
+        // Configuration
+        Session session = createTestSession().setSeatsTaken(2).setCapacity(2);
+        when(sessionRepository.findByIdForUpdate(VALID_SESSION_ID)).thenReturn(Optional.of(session));
+        when(sessionRepository.removeParticipant(VALID_SESSION_ID, VALID_USER_ID)).thenReturn(0);
+        when(waitlistRepository.removeUser(VALID_SESSION_ID, VALID_USER_ID)).thenReturn(1);
+
+        // Action
+        assertDoesNotThrow(() -> sessionService.noLongerParticipate(VALID_SESSION_ID, VALID_USER_ID));
+
+        // Vérification : aucune place n'est libérée
+        assertEquals(2, session.getSeatsTaken());
+        verify(waitlistRepository, never()).findFirstBySessionIdOrderByIdAsc(anyLong());
     }
 
     // Tester la tentative de retrait d'un utilisateur d'une session non existante
     @Test
     void whenRemovingUserFromNonExistentSession_thenThrowsNotFoundException() {
         // Configuration
-        when(sessionRepository.findById(VALID_SESSION_ID)).thenReturn(Optional.empty());
+        when(sessionRepository.findByIdForUpdate(VALID_SESSION_ID)).thenReturn(Optional.empty());
 
         // Action & Vérification
         assertThrows(NotFoundException.class, () -> sessionService.noLongerParticipate(VALID_SESSION_ID, VALID_USER_ID));
@@ -152,8 +368,8 @@ class SessionServiceTest {
     @Test
     void whenRemovingNonParticipantUser_thenThrowsBadRequestException() {
         // Configuration
-        Session session = createTestSession();
-        when(sessionRepository.findById(VALID_SESSION_ID)).thenReturn(Optional.of(session));
+        when(sessionRepository.findByIdForUpdate(VALID_SESSION_ID)).thenReturn(Optional.of(createTestSession()));
+        when(sessionRepository.removeParticipant(VALID_SESSION_ID, VALID_USER_ID)).thenReturn(0);
 
         // Action & Vérification
         assertThrows(BadRequestException.class, () -> sessionService.noLongerParticipate(VALID_SESSION_ID, VALID_USER_ID));
@@ -175,20 +391,94 @@ class SessionServiceTest {
 
     }
 
+    // Tester l'inscription : la session verrouillée prend une place de plus et un seul INSERT est fait dans PARTICIPATE
     @Test
     void whenAddingUserToSession_thenUserIsAddedSuccessfully() {
         // Configuration
-        Session session = createTestSession();
-        User newUser = new User();
-        newUser.setId(3L);                           // ID différent pour le nouveau utilisateur
-        when(sessionRepository.findById(VALID_SESSION_ID)).thenReturn(Optional.of(session));
-        when(userRepository.findById(3L)).thenReturn(Optional.of(newUser));
+        Session session = createTestSession().setSeatsTaken(1).setCapacity(2);
+        when(sessionRepository.findByIdForUpdate(VALID_SESSION_ID)).thenReturn(Optional.of(session));
+        when(userRepository.existsById(3L)).thenReturn(true);
+        when(sessionRepository.countParticipant(VALID_SESSION_ID, 3L)).thenReturn(0L);
 
         // Action
-        assertDoesNotThrow(() -> sessionService.participate(VALID_SESSION_ID, 3L));
+        boolean seated = sessionService.participate(VALID_SESSION_ID, 3L);
 
         // Vérification
-        assertTrue(session.getUsers().contains(newUser), "Le nouvel utilisateur devrait être ajouté à la session.");
+        assertTrue(seated, "L'utilisateur devrait avoir obtenu une place.");
+        assertEquals(2, session.getSeatsTaken());
+        verify(sessionRepository).addParticipant(VALID_SESSION_ID, 3L);
+        verify(sessionRepository, never()).save(any(Session.class));
+    }
+
+    // Tester l'inscription à une session complète : l'utilisateur passe en liste d'attente
+    @Test
+    void whenAddingUserToFullSession_thenUserIsWaitlisted() {
+        // Configuration
+        Session session = createTestSession().setSeatsTaken(2).setCapacity(2);
+        when(sessionRepository.findByIdForUpdate(VALID_SESSION_ID)).thenReturn(Optional.of(session));
+        when(userRepository.existsById(3L)).thenReturn(true);
+        when(sessionRepository.countParticipant(VALID_SESSION_ID, 3L)).thenReturn(0L);
+
+        // Action
+        boolean seated = sessionService.participate(VALID_SESSION_ID, 3L);
+
+        // Vérification
+        assertFalse(seated, "L'utilisateur ne devrait pas avoir de place.");
+        assertEquals(2, session.getSeatsTaken());
+        verify(waitlistRepository).saveAndFlush(argThat(entry -> entry.getUserId().equals(3L) && entry.getSessionId().equals(VALID_SESSION_ID)));
+        verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
+    }
+
+    // Tester l'inscription d'un utilisateur déjà en liste d'attente
+    @Test
+    void whenAddingUserAlreadyWaiting_thenThrowsBadRequestException() {
+        // Configuration
+        Session session = createTestSession().setSeatsTaken(2).setCapacity(2);
+        when(sessionRepository.findByIdForUpdate(VALID_SESSION_ID)).thenReturn(Optional.of(session));
+        when(userRepository.existsById(VALID_USER_ID)).thenReturn(true);
+        when(sessionRepository.countParticipant(VALID_SESSION_ID, VALID_USER_ID)).thenReturn(0L);
+        when(waitlistRepository.existsBySessionIdAndUserId(VALID_SESSION_ID, VALID_USER_ID)).thenReturn(true);
+
+        // Action & Vérification
+        assertThrows(BadRequestException.class, () -> sessionService.participate(VALID_SESSION_ID, VALID_USER_ID));
+        verify(waitlistRepository, never()).saveAndFlush(any(WaitlistEntry.class));
+    }
+
+    // Tester l'inscription d'un utilisateur déjà inscrit
+    @Test
+    void whenAddingUserAlreadyInSession_thenThrowsBadRequestException() {
+        // Configuration
+        when(sessionRepository.findByIdForUpdate(VALID_SESSION_ID)).thenReturn(Optional.of(createTestSession()));
+        when(userRepository.existsById(VALID_USER_ID)).thenReturn(true);
+        when(sessionRepository.countParticipant(VALID_SESSION_ID, VALID_USER_ID)).thenReturn(1L);
+
+        // Action & Vérification
+        assertThrows(BadRequestException.class, () -> sessionService.participate(VALID_SESSION_ID, VALID_USER_ID));
+        verify(sessionRepository, never()).addParticipant(anyLong(), anyLong());
+    }
+
+    // Tester deux inscriptions simultanées : la clé primaire rejette la seconde
+    @Test
+    void whenAddingUserConcurrentlyEnrolled_thenThrowsBadRequestException() {
+        // Configuration
+        when(sessionRepository.findByIdForUpdate(VALID_SESSION_ID)).thenReturn(Optional.of(createTestSession()));
+        when(userRepository.existsById(VALID_USER_ID)).thenReturn(true);
+        when(sessionRepository.countParticipant(VALID_SESSION_ID, VALID_USER_ID)).thenReturn(0L);
+        when(sessionRepository.addParticipant(VALID_SESSION_ID, VALID_USER_ID)).thenThrow(new DataIntegrityViolationException("duplicate"));
+
+        // Action & Vérification
+        assertThrows(BadRequestException.class, () -> sessionService.participate(VALID_SESSION_ID, VALID_USER_ID));
+    }
+
+    // Tester l'inscription d'un utilisateur inexistant
+    @Test
+    void whenAddingUnknownUserToSession_thenThrowsNotFoundException() {
+        // Configuration
+        when(userRepository.existsById(VALID_USER_ID)).thenReturn(false);
+
+        // Action & Vérification
+        assertThrows(NotFoundException.class, () -> sessionService.participate(VALID_SESSION_ID, VALID_USER_ID));
+        verify(sessionRepository, never()).findByIdForUpdate(anyLong());
     }
 
 
@@ -1,6 +1,7 @@
 package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.models.Teacher;
+import com.openclassrooms.starterjwt.repository.CollectionVersion;
 import com.openclassrooms.starterjwt.repository.TeacherRepository;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -8,13 +9,15 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class TeacherServiceTest {
@@ -33,6 +36,7 @@ class TeacherServiceTest {
         teacher.setId(id);
         teacher.setFirstName(firstName);
         teacher.setLastName(lastName);
+        teacher.setUpdatedAt(LocalDateTime.of(2024, 1, 1, 10, 0).plusMinutes(id));
         return teacher;
     }
 
@@ -99,4 +103,104 @@ class TeacherServiceTest {
         assertTrue(allTeachers.isEmpty(), "La liste des enseignants devrait être vide si aucun enseignant n'est présent.");
     }
 
+    // On teste que les enseignants sont lus une seule fois puis servis depuis la mémoire
+    @Test
+    void whenReadingTeachersTwice_thenDatabaseIsReadOnce() {
+        // GIVEN: Deux enseignants chargés dans l'annuaire
+        when(teacherRepository.findAll()).thenReturn(Arrays.asList(createTeacher(TEACHER_ID, FIRST_NAME_STEPHANE, LAST_NAME_GMT), createTeacher(2L, FIRST_NAME_NATH, LAST_NAME_TAY)));
+        teacherService.load();
+
+        // WHEN: Plusieurs lectures successives
+        teacherService.findAll();
+        Teacher foundTeacher = teacherService.findById(2L);
+        List<Teacher> allTeachers = teacherService.findAll();
+
+        // THEN: Aucune nouvelle requête, la version est calculée depuis l'annuaire
+        assertEquals(FIRST_NAME_NATH, foundTeacher.getFirstName());
+        assertEquals(2, allTeachers.size());
+        assertEquals(Long.valueOf(2L), teacherService.getVersion().getTotal());
+        assertEquals(LocalDateTime.of(2024, 1, 1, 10, 2), teacherService.getVersion().getLastModified());
+        verify(teacherRepository, times(1)).findAll();
+        verify(teacherRepository, never()).findById(any());
+    }
+
+    // On teste qu'un enseignant enregistré par le service est immédiatement visible dans l'annuaire
+    @Test
+    void whenSavingTeacher_thenDirectoryIsUpdatedWithoutReload() {
+        // GIVEN: Un annuaire contenant un enseignant
+        when(teacherRepository.findAll()).thenReturn(Arrays.asList(createTeacher(TEACHER_ID, FIRST_NAME_STEPHANE, LAST_NAME_GMT)));
+        teacherService.load();
+        Teacher newTeacher = createTeacher(2L, FIRST_NAME_NATH, LAST_NAME_TAY);
+        when(teacherRepository.save(newTeacher)).thenReturn(newTeacher);
+
+        // WHEN: Enregistrement d'un nouvel enseignant
+        teacherService.save(newTeacher);
+
+        // THEN: Il est trouvé sans relire la table
+        assertEquals(2, teacherService.findAll().size());
+        assertEquals(FIRST_NAME_NATH, teacherService.findById(2L).getFirstName());
+        verify(teacherRepository, times(1)).findAll();
+        verify(teacherRepository, never()).findById(any());
+    }
+
+    // On teste qu'un enseignant modifié par l'appelant ne change pas celui de l'annuaire, partagé entre les requêtes
+    @Test
+    void whenCallerChangesReturnedTeacher_thenDirectoryIsUnchanged() {
+        // GIVEN: Un annuaire contenant un enseignant
+        Teacher loaded = createTeacher(TEACHER_ID, FIRST_NAME_STEPHANE, LAST_NAME_GMT);
+        when(teacherRepository.findAll()).thenReturn(Arrays.asList(loaded));
+        teacherService.load();
+
+        // WHEN: L'appelant modifie les enseignants reçus et celui qui a servi au chargement
+        teacherService.findById(TEACHER_ID).setFirstName("Changed");
+        teacherService.findAll().get(0).setLastName("Changed");
+        teacherService.findAll().clear();
+        loaded.setFirstName("Changed");
+
+        // THEN: L'annuaire rend toujours l'enseignant chargé, dans une nouvelle instance à chaque appel
+        Teacher foundTeacher = teacherService.findById(TEACHER_ID);
+        assertEquals(FIRST_NAME_STEPHANE, foundTeacher.getFirstName());
+        assertEquals(LAST_NAME_GMT, teacherService.findAll().get(0).getLastName());
+        assertNotSame(foundTeacher, teacherService.findById(TEACHER_ID));
+    }
+
+    // On teste qu'un enseignant ajouté hors du service est trouvé puis conservé dans l'annuaire
+    @Test
+    void whenTeacherIsMissingFromDirectory_thenItIsLookedUpOnce() {
+        // GIVEN: Un annuaire vide alors que l'enseignant existe en base
+        when(teacherRepository.findAll()).thenReturn(new ArrayList<>());
+        teacherService.load();
+        when(teacherRepository.findById(TEACHER_ID)).thenReturn(Optional.of(createTeacher(TEACHER_ID, FIRST_NAME_STEPHANE, LAST_NAME_GMT)));
+
+        // WHEN: Deux recherches successives
+        teacherService.findById(TEACHER_ID);
+        Teacher foundTeacher = teacherService.findById(TEACHER_ID);
+
+        // THEN: La base n'est interrogée qu'une fois
+        assertEquals(FIRST_NAME_STEPHANE, foundTeacher.getFirstName());
+        assertEquals(1, teacherService.findAll().size());
+        verify(teacherRepository, times(1)).findById(TEACHER_ID);
+    }
+
+    // On teste que le rafraîchissement périodique ne recharge la table que si sa version a changé
+    @Test
+    void whenRefreshing_thenTableIsReloadedOnlyIfChanged() {
+        // GIVEN: Un annuaire chargé et une version en base identique
+        when(teacherRepository.findAll()).thenReturn(Arrays.asList(createTeacher(TEACHER_ID, FIRST_NAME_STEPHANE, LAST_NAME_GMT)));
+        teacherService.load();
+        CollectionVersion unchanged = mock(CollectionVersion.class);
+        when(unchanged.getTotal()).thenReturn(1L);
+        when(unchanged.getLastModified()).thenReturn(LocalDateTime.of(2024, 1, 1, 10, 1));
+        CollectionVersion changed = mock(CollectionVersion.class);
+        when(changed.getTotal()).thenReturn(2L);
+        when(teacherRepository.findVersion()).thenReturn(unchanged, changed);
+
+        // WHEN: Deux rafraîchissements, la table ayant changé entre les deux
+        teacherService.refresh();
+        verify(teacherRepository, times(1)).findAll();
+        teacherService.refresh();
+
+        // THEN: Seul le second recharge la table
+        verify(teacherRepository, times(2)).findAll();
+    }
 }
@@ -2,13 +2,18 @@ package com.openclassrooms.starterjwt.services;
 
 import com.openclassrooms.starterjwt.models.User;
 import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.security.services.UserDetailsServiceImpl;
 import com.openclassrooms.starterjwt.services.UserService;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -22,6 +27,12 @@ class UserServiceTest {
     @Mock
     UserRepository userRepository;
 
+    @Mock
+    CacheManager cacheManager;
+
+    @Mock
+    Cache principalCache;
+
     // Variables communes pour améliorer la lisibilité
     private final Long EXISTING_USER_ID = 1L;
     private final Long NON_EXISTING_USER_ID = 2L;
@@ -47,6 +58,36 @@ class UserServiceTest {
         verify(userRepository, times(1)).deleteById(userId);
     }
 
+    // On vérifie que la suppression d'un utilisateur retire son principal du cache, pour qu'un jeton encore valide ne l'authentifie plus
+    @Test
+    void deleteUser_ShouldEvictCachedPrincipal() {
+        // GIVEN: Un utilisateur existant et le cache des principaux
+        User mockUser = createTestUser(EXISTING_USER_ID, USER_EMAIL);
+        when(userRepository.findById(EXISTING_USER_ID)).thenReturn(Optional.of(mockUser));
+        when(cacheManager.getCache(UserDetailsServiceImpl.PRINCIPAL_CACHE)).thenReturn(principalCache);
+
+        // WHEN: Suppression de l'utilisateur
+        userService.delete(EXISTING_USER_ID);
+
+        // THEN: L'utilisateur est supprimé puis son entrée est retirée du cache, indexée par son email
+        verify(userRepository).deleteById(EXISTING_USER_ID);
+        verify(principalCache).evict(USER_EMAIL);
+    }
+
+    // On vérifie que rien n'est retiré du cache lorsque l'utilisateur à supprimer n'existe pas
+    @Test
+    void deleteUser_WhenUserNotExists_ShouldNotEvictAnything() {
+        // GIVEN: Aucun utilisateur pour cet ID
+        when(userRepository.findById(NON_EXISTING_USER_ID)).thenReturn(Optional.empty());
+        when(cacheManager.getCache(UserDetailsServiceImpl.PRINCIPAL_CACHE)).thenReturn(principalCache);
+
+        // WHEN: Tentative de suppression
+        userService.delete(NON_EXISTING_USER_ID);
+
+        // THEN: Le cache n'est pas touché
+        verifyNoInteractions(principalCache);
+    }
+
 
     // On s'assure que si un utilisateur existe (simulé ici par un mock), le UserService peut le retrouver par son ID et nous le renvoyer
     @Test
@@ -77,4 +118,32 @@ class UserServiceTest {
         // THEN: Vérification que null est retourné, indiquant qu'aucun utilisateur n'a été trouvé
         assertNull(resultUser, "Aucun utilisateur ne devrait être retourné pour un ID inexistant");
     }
+
+
+    // On vérifie que les identifiants sont résolus par une seule requête : doublons et identifiants inconnus retirés, ordre conservé
+    @Test
+    void findReferencesById_ShouldDropUnknownAndDuplicateIdsInOrder() {
+        // GIVEN: Les utilisateurs 3 et 1 existent, le 42 non
+        when(userRepository.findExistingIds(anyCollection())).thenReturn(Arrays.asList(1L, 3L));
+        when(userRepository.getById(3L)).thenReturn(createTestUser(3L, "trois@gmail.com"));
+        when(userRepository.getById(1L)).thenReturn(createTestUser(1L, USER_EMAIL));
+
+        // WHEN: Résolution d'une liste avec doublon et identifiant inconnu
+        List<User> users = userService.findReferencesById(Arrays.asList(3L, 42L, 1L, 3L));
+
+        // THEN: Une seule requête, et les références dans l'ordre demandé
+        assertEquals(2, users.size());
+        assertEquals(Long.valueOf(3L), users.get(0).getId());
+        assertEquals(Long.valueOf(1L), users.get(1).getId());
+        verify(userRepository, times(1)).findExistingIds(anyCollection());
+        verify(userRepository, never()).findById(anyLong());
+    }
+
+    // On vérifie qu'aucune requête n'est faite lorsqu'il n'y a aucun identifiant à résoudre
+    @Test
+    void findReferencesById_WhenEmpty_ShouldNotQuery() {
+        assertTrue(userService.findReferencesById(Arrays.asList()).isEmpty());
+
+        verifyNoInteractions(userRepository);
+    }
 }
@@ -0,0 +1,96 @@
+package com.openclassrooms.starterjwt.services.integration;
+
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// On vérifie que la base est au niveau de la dernière migration et que ses clés protègent les données
+@SpringBootTest
+public class SchemaMigrationIntTest {
+
+    @Autowired
+    private Flyway flyway;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private SessionRepository sessionRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    @Test
+    void whenApplicationStarts_thenNoMigrationIsPending() {
+        assertEquals(0, flyway.info().pending().length, "Toutes les migrations devraient être appliquées au démarrage.");
+        assertNotNull(flyway.info().current());
+    }
+
+    @Test
+    void whenSameUserIsInsertedTwiceInASession_thenPrimaryKeyRejectsIt() {
+        // Préparation
+        User user = userRepository.save(new User(UUID.randomUUID().toString().substring(0, 8) + "@schema.com", "Schema", "Key", "password", false));
+        Session session = sessionRepository.save(new Session().setName("Schema").setDescription("mySession").setDate(Date.from(Instant.now())));
+        String insert = "INSERT INTO PARTICIPATE (session_id, user_id) VALUES (?, ?)";
+        jdbcTemplate.update(insert, session.getId(), user.getId());
+
+        // Action et vérification : la clé primaire (session_id, user_id) refuse le doublon
+        assertThrows(DataIntegrityViolationException.class, () -> jdbcTemplate.update(insert, session.getId(), user.getId()));
+    }
+
+    @Test
+    void whenEmailIsAlreadyUsed_thenUniqueIndexRejectsIt() {
+        // Préparation
+        String email = UUID.randomUUID().toString().substring(0, 8) + "@schema.com";
+        String insert = "INSERT INTO USERS (first_name, last_name, admin, email, password) VALUES ('Schema', 'Email', false, ?, 'password')";
+        jdbcTemplate.update(insert, email);
+
+        // Action et vérification : l'index unique sur l'email refuse le second compte, même sans passer par JPA
+        assertThrows(DataIntegrityViolationException.class, () -> jdbcTemplate.update(insert, email));
+    }
+
+    @Test
+    void whenTwoAccountsShareAnEmail_thenTheyAreMergedBeforeTheUniqueIndex() {
+        // Préparation : une base au niveau 4, avec un second compte (2) pour l'email du compte 1
+        String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1";
+        Flyway.configure().dataSource(url, "sa", "").target("4").load().migrate();
+        JdbcTemplate legacy = new JdbcTemplate(new DriverManagerDataSource(url, "sa", ""));
+        legacy.update("INSERT INTO USERS (id, first_name, last_name, admin, email, password) VALUES "
+                + "(11, 'Old', 'Account', false, 'twice@schema.com', 'first'), "
+                + "(12, 'New', 'Account', false, 'twice@schema.com', 'second'), "
+                + "(13, 'Other', 'Account', false, 'once@schema.com', 'other')");
+        legacy.update("INSERT INTO SESSIONS (id, name, description, seats_taken) VALUES "
+                + "(21, 'Both', 'Yoga', 2), (22, 'Second', 'Yoga', 1), (23, 'Full', 'Yoga', 0)");
+        legacy.update("INSERT INTO PARTICIPATE (session_id, user_id) VALUES (21, 11), (21, 12), (22, 12)");
+        // Session 22 : le compte 1 attend une place déjà obtenue par le compte 2. Session 23 : le compte 2 attend depuis plus longtemps
+        legacy.update("INSERT INTO WAITLIST (id, session_id, user_id) VALUES (31, 22, 13), (32, 22, 11), (33, 23, 12), (34, 23, 11)");
+
+        // Action
+        Flyway.configure().dataSource(url, "sa", "").load().migrate();
+
+        // Vérification : le compte le plus ancien reste, avec les places et le meilleur rang d'attente des deux comptes
+        assertEquals(Collections.singletonList(11L),
+                legacy.queryForList("SELECT id FROM USERS WHERE email = 'twice@schema.com'", Long.class));
+        assertEquals("first", legacy.queryForObject("SELECT password FROM USERS WHERE id = 11", String.class));
+        assertEquals(Arrays.asList(21L, 22L),
+                legacy.queryForList("SELECT session_id FROM PARTICIPATE WHERE user_id = 11 ORDER BY session_id", Long.class));
+        assertEquals(Arrays.asList(1, 1),
+                legacy.queryForList("SELECT seats_taken FROM SESSIONS WHERE id IN (21, 22) ORDER BY id", Integer.class));
+        assertEquals(Arrays.asList("31:13", "33:11"),
+                legacy.queryForList("SELECT CONCAT(id, ':', user_id) FROM WAITLIST ORDER BY id", String.class));
+        assertEquals("5", Flyway.configure().dataSource(url, "sa", "").load().info().current().getVersion().getVersion());
+    }
+}
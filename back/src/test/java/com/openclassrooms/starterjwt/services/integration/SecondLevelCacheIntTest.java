@@ -0,0 +1,131 @@
+package com.openclassrooms.starterjwt.services.integration;
+
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.services.SessionService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// On vérifie que les lectures répétées d'une même session sont servies par le cache de second niveau
+@SpringBootTest
+public class SecondLevelCacheIntTest {
+
+    @Autowired
+    private SessionService sessionService;
+    @Autowired
+    private SessionRepository sessionRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private Statistics statistics;
+    private Session session;
+
+    @BeforeEach
+    public void setup() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            users.add(userRepository.save(new User(UUID.randomUUID().toString().substring(0, 8) + "@l2.com", "Cache", "Region", "password", false)));
+        }
+
+        session = new Session();
+        session.setName("Cache");
+        session.setDescription("mySession");
+        session.setDate(Date.from(Instant.now()));
+        session.setUsers(users);
+        session = sessionService.create(session);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void whenLoadingSameSessionTwice_thenSecondLoadIsServedFromCache() {
+        // GIVEN: Une première lecture qui remplit le cache
+        sessionService.getById(session.getId());
+        statistics.clear();
+
+        // WHEN: Une seconde lecture dans une autre transaction
+        Session found = sessionService.getById(session.getId());
+
+        // THEN: Aucune requête SQL, la session vient de la région du cache
+        assertEquals("Cache", found.getName());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(1, statistics.getDomainDataRegionStatistics("sessions").getHitCount());
+    }
+
+    @Test
+    void whenReadingSessionDetailTwice_thenQueriesAreServedFromCache() {
+        // GIVEN: Une première lecture de la page de détail
+        sessionService.getViewById(session.getId());
+        sessionService.findParticipantIds(Collections.singletonList(session.getId()));
+        statistics.clear();
+
+        // WHEN: La même page est relue
+        sessionService.getViewById(session.getId());
+        List<Long> participants = sessionService.findParticipantIds(Collections.singletonList(session.getId())).get(session.getId());
+
+        // THEN: La session et ses participants viennent du cache de requêtes
+        assertEquals(3, participants.size());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(2, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    void whenUserJoinsSession_thenCachedParticipantsAreInvalidated() {
+        // GIVEN: Les participants déjà lus, par la collection comme par la requête mise en cache
+        assertEquals(3, participantCount());
+        assertEquals(3, sessionService.findParticipantIds(Collections.singletonList(session.getId())).get(session.getId()).size());
+        User newcomer = userRepository.save(new User(UUID.randomUUID().toString().substring(0, 8) + "@l2.com", "New", "Comer", "password", false));
+
+        // WHEN: Un nouvel utilisateur s'inscrit par l'écriture native sur PARTICIPATE
+        assertTrue(sessionService.participate(session.getId(), newcomer.getId()));
+
+        // THEN: Les deux lectures voient le nouvel inscrit
+        assertEquals(4, participantCount());
+        assertTrue(sessionService.findParticipantIds(Collections.singletonList(session.getId())).get(session.getId()).contains(newcomer.getId()));
+    }
+
+    @Test
+    void whenUserJoinsSession_thenOtherCachedSessionsStayCached() {
+        // GIVEN: Une autre session déjà en cache
+        Session other = sessionService.create(new Session().setName("Voisine").setDescription("mySession").setDate(Date.from(Instant.now())));
+        sessionService.getById(other.getId());
+        User newcomer = userRepository.save(new User(UUID.randomUUID().toString().substring(0, 8) + "@l2.com", "New", "Comer", "password", false));
+
+        // WHEN: Un utilisateur s'inscrit à la première session
+        assertTrue(sessionService.participate(session.getId(), newcomer.getId()));
+        statistics.clear();
+
+        // THEN: Seule l'entrée de la session modifiée est remplacée, l'autre est toujours servie par le cache
+        assertEquals("Voisine", sessionService.getById(other.getId()).getName());
+        assertEquals(4, sessionService.getById(session.getId()).getSeatsTaken());
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(2, statistics.getDomainDataRegionStatistics("sessions").getHitCount());
+    }
+
+    private int participantCount() {
+        return new TransactionTemplate(transactionManager)
+                .execute(status -> sessionRepository.findById(session.getId()).orElseThrow().getUsers().size());
+    }
+}
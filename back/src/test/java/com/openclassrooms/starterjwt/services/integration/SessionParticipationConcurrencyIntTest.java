@@ -0,0 +1,164 @@
+package com.openclassrooms.starterjwt.services.integration;
+
+import com.openclassrooms.starterjwt.models.Session;
+import com.openclassrooms.starterjwt.models.User;
+import com.openclassrooms.starterjwt.models.WaitlistEntry;
+import com.openclassrooms.starterjwt.repository.SessionRepository;
+import com.openclassrooms.starterjwt.repository.UserRepository;
+import com.openclassrooms.starterjwt.repository.WaitlistRepository;
+import com.openclassrooms.starterjwt.services.SessionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// On lance des centaines d'inscriptions simultanées sur une même session pour vérifier l'absence de surréservation
+@SpringBootTest
+public class SessionParticipationConcurrencyIntTest {
+    private static final int CAPACITY = 20;
+    private static final int USERS = 300;
+    private static final int THREADS = 32;
+    private static final Duration P99_BUDGET = Duration.ofSeconds(2);
+
+    @Autowired
+    private SessionService sessionService;
+    @Autowired
+    private SessionRepository sessionRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private WaitlistRepository waitlistRepository;
+
+    private Session session;
+    private List<User> users;
+
+    @BeforeEach
+    public void setup() {
+        users = new ArrayList<>();
+        String run = UUID.randomUUID().toString().substring(0, 8);
+        for (int i = 0; i < USERS; i++) {
+            users.add(new User(run + i + "@rush.com", "Rush", "Hour", "password", false));
+        }
+        users = userRepository.saveAll(users);
+
+        session = new Session();
+        session.setName("Cours populaire");
+        session.setDescription("mySession");
+        session.setDate(Date.from(Instant.now()));
+        session.setCapacity(CAPACITY);
+        session = sessionService.create(session);
+    }
+
+    @AfterEach
+    public void cleanup() {
+        sessionService.delete(session.getId());
+    }
+
+    @Test
+    void whenHundredsOfUsersJoinAtOnce_thenSessionIsNeverOverbooked() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger seated = new AtomicInteger();
+        AtomicInteger waitlisted = new AtomicInteger();
+        List<Future<Long>> latencies = new ArrayList<>();
+
+        for (User user : users) {
+            latencies.add(executor.submit(() -> {
+                start.await();
+                long begin = System.nanoTime();
+                if (sessionService.participate(session.getId(), user.getId())) {
+                    seated.incrementAndGet();
+                } else {
+                    waitlisted.incrementAndGet();
+                }
+                return System.nanoTime() - begin;
+            }));
+        }
+        start.countDown();
+
+        List<Long> durations = new ArrayList<>();
+        for (Future<Long> latency : latencies) {
+            durations.add(latency.get(1, TimeUnit.MINUTES));    // Une exception (deadlock, doublon) ferait échouer le test
+        }
+        executor.shutdown();
+
+        // Jamais plus d'inscrits que de places, et personne n'est perdu
+        assertEquals(CAPACITY, seated.get());
+        assertEquals(USERS - CAPACITY, waitlisted.get());
+        assertEquals(CAPACITY, participantCount());
+        assertEquals(CAPACITY, sessionRepository.findById(session.getId()).orElseThrow().getSeatsTaken());
+
+        Collections.sort(durations);
+        long p99 = durations.get((int) Math.ceil(durations.size() * 0.99) - 1);
+        assertTrue(p99 <= P99_BUDGET.toNanos(), "p99 des inscriptions trop élevé : " + Duration.ofNanos(p99).toMillis() + " ms");
+    }
+
+    @Test
+    void whenAParticipantLeaves_thenFirstWaitingUserTakesTheSeat() {
+        for (User user : users.subList(0, CAPACITY + 2)) {
+            sessionService.participate(session.getId(), user.getId());
+        }
+        WaitlistEntry first = waitlistRepository.findFirstBySessionIdOrderByIdAsc(session.getId()).orElseThrow();
+
+        sessionService.noLongerParticipate(session.getId(), users.get(0).getId());
+
+        List<Long> participants = sessionService.findParticipantIds(Collections.singletonList(session.getId())).get(session.getId());
+        assertEquals(CAPACITY, participants.size());
+        assertTrue(participants.contains(first.getUserId()), "Le premier de la liste d'attente devrait avoir la place libérée.");
+        assertFalse(waitlistRepository.existsBySessionIdAndUserId(session.getId(), first.getUserId()));
+    }
+
+    @Test
+    void whenCapacityIsRaised_thenWaitingUsersTakeTheNewSeats() {
+        for (User user : users.subList(0, CAPACITY + 3)) {
+            sessionService.participate(session.getId(), user.getId());
+        }
+
+        // Les participants envoyés avec la mise à jour sont ignorés, seule la capacité change les places
+        Session changes = new Session().setName("Cours agrandi").setDescription("mySession").setDate(session.getDate())
+                .setCapacity(CAPACITY + 2).setUsers(Collections.emptyList());
+        sessionService.update(session.getId(), changes);
+
+        assertEquals(CAPACITY + 2, participantCount());
+        assertEquals(CAPACITY + 2, sessionRepository.findById(session.getId()).orElseThrow().getSeatsTaken());
+        assertTrue(waitlistRepository.existsBySessionIdAndUserId(session.getId(), users.get(CAPACITY + 2).getId()),
+                "Le dernier inscrit devrait rester en liste d'attente.");
+        assertEquals("Cours agrandi", sessionRepository.findById(session.getId()).orElseThrow().getName());
+    }
+
+    @Test
+    void whenFullSessionIsEditedWithoutCapacity_thenWaitingUsersStayWaiting() {
+        for (User user : users.subList(0, CAPACITY + 2)) {
+            sessionService.participate(session.getId(), user.getId());
+        }
+
+        // Le formulaire de session n'envoie ni capacité ni participants
+        Session changes = new Session().setName("Cours renommé").setDescription("mySession").setDate(session.getDate());
+        sessionService.update(session.getId(), changes);
+
+        Session updated = sessionRepository.findById(session.getId()).orElseThrow();
+        assertEquals(CAPACITY, updated.getCapacity());
+        assertEquals(CAPACITY, updated.getSeatsTaken());
+        assertEquals(CAPACITY, participantCount());
+        assertTrue(waitlistRepository.existsBySessionIdAndUserId(session.getId(), users.get(CAPACITY).getId()));
+        assertTrue(waitlistRepository.existsBySessionIdAndUserId(session.getId(), users.get(CAPACITY + 1).getId()));
+    }
+
+    private int participantCount() {
+        return sessionService.findParticipantIds(Collections.singletonList(session.getId()))
+                .getOrDefault(session.getId(), Collections.emptyList()).size();
+    }
+}